@@ -0,0 +1,67 @@
+package io.xlate.jsonapi.rvp;
+
+/**
+ * Snapshot of the statistics of one of a resource type's caches, taken when
+ * the instance was obtained from
+ * {@link JsonApiResource#getResourceCacheStatistics(String)}. The counts are
+ * cumulative from the time the cache was created.
+ */
+public final class JsonApiCacheStatistics {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public JsonApiCacheStatistics(int size, long hitCount, long missCount, long evictionCount) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Get the number of entries held by the cache.
+     *
+     * @return the number of entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of lookups served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of lookups not found in the cache, including lookups of
+     * expired entries.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of entries removed to make room for newer entries.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonApiCacheStatistics [size=" + size
+                + ", hitCount=" + hitCount
+                + ", missCount=" + missCount
+                + ", evictionCount=" + evictionCount + "]";
+    }
+}
@@ -1,5 +1,7 @@
 package io.xlate.jsonapi.rvp;
 
+import java.util.Map;
+
 import jakarta.ws.rs.core.MediaType;
 
 public class JsonApiMediaType extends MediaType {
@@ -8,4 +10,12 @@ public class JsonApiMediaType extends MediaType {
 
     public static final MediaType APPLICATION_JSONAPI_TYPE = new MediaType("application", "vnd.api+json");
 
+    public static final String ATOMIC_EXTENSION = "https://jsonapi.org/ext/atomic";
+
+    public static final String APPLICATION_JSONAPI_ATOMIC = APPLICATION_JSONAPI + ";ext=\"" + ATOMIC_EXTENSION + '"';
+
+    public static final MediaType APPLICATION_JSONAPI_ATOMIC_TYPE = new MediaType("application",
+                                                                                  "vnd.api+json",
+                                                                                  Map.of("ext", ATOMIC_EXTENSION));
+
 }
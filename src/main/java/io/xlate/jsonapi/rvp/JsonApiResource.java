@@ -1,33 +1,45 @@
 package io.xlate.jsonapi.rvp;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import jakarta.enterprise.context.NormalScope;
 import jakarta.enterprise.inject.Any;
 import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
 import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
@@ -35,12 +47,15 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
+import jakarta.ws.rs.core.Response.Status.Family;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
@@ -48,13 +63,17 @@ import jakarta.ws.rs.core.UriInfo;
 import io.xlate.jsonapi.rvp.internal.DefaultJsonApiHandler;
 import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
 import io.xlate.jsonapi.rvp.internal.JsonApiHandlerChain;
+import io.xlate.jsonapi.rvp.internal.cache.entity.ExpiringCache;
 import io.xlate.jsonapi.rvp.internal.persistence.boundary.PersistenceController;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
 import io.xlate.jsonapi.rvp.internal.rs.boundary.Responses;
+import io.xlate.jsonapi.rvp.internal.rs.entity.AtomicOperation;
+import io.xlate.jsonapi.rvp.internal.rs.entity.ClientModule;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalContext;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalQuery;
 import io.xlate.jsonapi.rvp.internal.rs.entity.JsonApiRequest;
+import io.xlate.jsonapi.rvp.internal.rs.entity.OperationRequest;
 import io.xlate.jsonapi.rvp.internal.validation.boundary.TransactionalValidator;
 
 @Consumes(JsonApiMediaType.APPLICATION_JSONAPI)
@@ -63,6 +82,7 @@ public abstract class JsonApiResource {
 
     private static final Logger logger = Logger.getLogger(JsonApiResource.class.getName());
     private static final String CLIENT_PATH = "internal/rs/boundary/client.js";
+    private static final String TRANSACTION_SYNCHRONIZATION_REGISTRY = "java:comp/TransactionSynchronizationRegistry";
     private static final JsonApiHandler<?> DEFAULT_HANDLER = new DefaultJsonApiHandler();
 
     @Inject
@@ -75,6 +95,9 @@ public abstract class JsonApiResource {
     @Context
     protected UriInfo uriInfo;
 
+    @Context
+    protected HttpHeaders headers;
+
     @Context
     protected SecurityContext security;
 
@@ -87,15 +110,12 @@ public abstract class JsonApiResource {
     @Inject
     TransactionalValidator txValidator;
 
-    Date initializationDate = new Date();
     CacheControl cacheControl = new CacheControl();
 
     private Class<?> resourceClass;
     private EntityMetamodel model;
     private PersistenceController persistence;
 
-    private Map<URI, String> clients = new ConcurrentHashMap<>(5);
-
     protected void initialize(Set<JsonApiResourceType<?>> resourceTypes) {
         resourceClass = this.getClass();
 
@@ -107,8 +127,47 @@ public abstract class JsonApiResource {
             throw new IllegalStateException("Resource class missing @Path annotation");
         }
 
-        model = new EntityMetamodel(resourceClass, resourceTypes, persistenceContext.getMetamodel());
-        persistence = new PersistenceController(persistenceContext, model, txValidator);
+        model = EntityMetamodel.getInstance(resourceClass, resourceTypes, persistenceContext.getEntityManagerFactory());
+        persistence = new PersistenceController(persistenceContext,
+                                                model,
+                                                txValidator,
+                                                getQueryExecutor(),
+                                                getTransactionSynchronizationRegistry());
+    }
+
+    /**
+     * Executor used to run independent queries concurrently for resource types
+     * defined with {@link JsonApiResourceType.Builder#concurrentQueries(boolean)}.
+     * Each concurrent query uses an EntityManager of its own. By default no
+     * executor is provided and all queries run in the requesting thread.
+     * Applications running in a container may override this method to provide
+     * the container's {@code ManagedExecutorService}, e.g. one injected with
+     * {@code @Resource}.
+     *
+     * @return the executor for concurrent queries, or null to run the queries
+     *         in the requesting thread
+     */
+    protected Executor getQueryExecutor() {
+        return null;
+    }
+
+    /**
+     * Registry of the container's JTA transactions, used to invalidate the
+     * caches of resource types again once a transaction that modified them
+     * completes. By default the registry is looked up at its standard JNDI
+     * name. When no registry is available (e.g. outside of a container) caches
+     * are only invalidated at the time of the change.
+     *
+     * @return the transaction synchronization registry, or null when not
+     *         available
+     */
+    protected TransactionSynchronizationRegistry getTransactionSynchronizationRegistry() {
+        try {
+            return (TransactionSynchronizationRegistry) new InitialContext().lookup(TRANSACTION_SYNCHRONIZATION_REGISTRY);
+        } catch (NamingException e) {
+            logger.log(Level.FINER, e, () -> "TransactionSynchronizationRegistry not available");
+            return null;
+        }
     }
 
     protected JsonApiResource() {
@@ -120,12 +179,12 @@ public abstract class JsonApiResource {
     }
 
     @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
-    private Set<ConstraintViolation<?>> validateEntity(String resourceType, String id, JsonObject input) {
-        JsonApiRequest jsonApiRequest = new JsonApiRequest(request.getMethod(),
+    private Set<ConstraintViolation<?>> validateEntity(InternalContext context) {
+        JsonApiRequest jsonApiRequest = new JsonApiRequest(context.getRequest().getMethod(),
                                                            model,
-                                                           model.getEntityMeta(resourceType),
-                                                           id,
-                                                           input);
+                                                           model.getEntityMeta(context.getResourceType()),
+                                                           null,
+                                                           context.getRequestEntity());
 
         return Collections.unmodifiableSet(validator.validate(jsonApiRequest));
     }
@@ -134,7 +193,7 @@ public abstract class JsonApiResource {
         if (meta == null || (id != null && !isValidId(meta, id))) {
             Responses.notFound(context);
             return false;
-        } else if (!meta.isMethodAllowed(request.getMethod())) {
+        } else if (!meta.isMethodAllowed(context.getRequest().getMethod())) {
             Responses.methodNotAllowed(context);
             return false;
         }
@@ -142,42 +201,47 @@ public abstract class JsonApiResource {
         return true;
     }
 
-    static String generateClientModule(URI uri, Class<?> resourceClass) {
-        StringBuilder buffer = new StringBuilder();
+    static ClientModule generateClientModule(URI uri, Class<?> resourceClass) {
+        try (InputStream prototype = JsonApiResource.class.getResourceAsStream(CLIENT_PATH)) {
+            var builder = UriBuilder.fromUri(uri);
+            builder.replacePath("").path(resourceClass);
 
-        try {
-            try (Reader prototype = new InputStreamReader(JsonApiResource.class.getResourceAsStream(CLIENT_PATH))) {
-                var builder = UriBuilder.fromUri(uri);
-                builder.replacePath("").path(resourceClass);
-                buffer.append(String.format("const baseAdminUrl = '%s';%n%n", builder.build().toString()));
-                int data;
-
-                while ((data = prototype.read()) > -1) {
-                    buffer.append((char) data);
-                }
-            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+            buffer.writeBytes(String.format("const baseAdminUrl = '%s';%n%n", builder.build().toString())
+                                    .getBytes(StandardCharsets.UTF_8));
+            prototype.transferTo(buffer);
+
+            return new ClientModule(buffer.toByteArray());
         } catch (IOException e) {
             throw new InternalServerErrorException("Client module not available", e);
         }
-
-        return buffer.toString();
     }
 
     @GET
     @Path("client.js")
     @Produces("application/javascript")
     public Response getClient() {
-        String client = clients.computeIfAbsent(uriInfo.getRequestUri(), uri -> generateClientModule(uri, this.resourceClass));
-        EntityTag etag = new EntityTag(Integer.toString(client.hashCode()));
+        ClientModule client = model.getClientModules()
+                                   .computeIfAbsent(uriInfo.getBaseUri(),
+                                                    uri -> generateClientModule(uri, this.resourceClass));
+
+        boolean gzipped = headers != null
+                && ClientModule.acceptsGzip(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        EntityTag etag = client.getEntityTag(gzipped);
         ResponseBuilder builder;
-        builder = request.evaluatePreconditions(initializationDate, etag);
+        builder = request.evaluatePreconditions(client.getLastModified(), etag);
 
         if (builder == null) {
-            builder = Response.ok(client);
+            builder = Response.ok(client.getContent(gzipped));
             builder.tag(etag);
-            builder.lastModified(initializationDate);
+            builder.lastModified(client.getLastModified());
+
+            if (gzipped) {
+                builder.encoding(ClientModule.GZIP);
+            }
         }
 
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
         builder.cacheControl(cacheControl);
 
         return builder.build();
@@ -274,20 +338,56 @@ public abstract class JsonApiResource {
         Set<ConstraintViolation<InternalQuery>> violations = validateParameters(params);
 
         if (violations.isEmpty()) {
-            JsonObject response = persistence.fetch(context, handler);
-
-            if (!context.hasResponse()) {
-                if (response != null) {
-                    Responses.ok(context, cacheControl, response);
-                } else {
-                    Responses.notFound(context);
-                }
+            if (isStreamed(context, meta)) {
+                Responses.ok(context, cacheControl, persistence.stream(context));
+                return;
             }
+
+            // The version and the resources are read in a single transaction
+            persistence.inReadTransaction(() -> readResponse(context, meta, handler));
         } else {
             Responses.badRequest(context, violations);
         }
     }
 
+    void readResponse(InternalContext context, EntityMeta meta, JsonApiHandler<?> handler) {
+        final EntityTag versionTag = context.getRelationshipName() == null ? persistence.getVersionTag(context, meta) : null;
+
+        if (versionTag != null) {
+            // Answer conditional reads before the resource is read
+            ResponseBuilder notModified = request.evaluatePreconditions(versionTag);
+
+            if (notModified != null) {
+                Responses.notModified(context, cacheControl, notModified);
+                return;
+            }
+
+            context.setEntityTag(versionTag);
+        }
+
+        JsonObject response = persistence.fetch(context, handler);
+
+        if (!context.hasResponse()) {
+            if (response != null) {
+                if (versionTag == null && context.getRelationshipName() == null) {
+                    context.setEntityTag(persistence.getContentTag(context, meta, response));
+                }
+
+                Responses.ok(context, cacheControl, response);
+            } else {
+                Responses.notFound(context);
+            }
+        }
+    }
+
+    boolean isStreamed(InternalContext context, EntityMeta meta) {
+        // Pages preceding a cursor are read in reverse and can not be streamed
+        return meta.isStreaming()
+                && context.getResourceId() == null
+                && context.getRelationshipName() == null
+                && context.getQuery().getPageBefore() == null;
+    }
+
     @GET
     @Path("{resource-type}/{id}/relationships/{relationship-name}")
     public Response readRelationship(@PathParam("resource-type") String resourceType,
@@ -319,34 +419,104 @@ public abstract class JsonApiResource {
         return context.getResponseBuilder().build();
     }
 
+    /**
+     * Replace the members of a relationship of the resource.
+     *
+     * @param resourceType the type of the resource
+     * @param id the identifier of the resource
+     * @param relationshipName the name of the relationship
+     * @param input document with the new linkage of the relationship
+     * @return 204 (No Content) when the relationship was updated
+     */
     @PATCH
     @Path("{resource-type}/{id}/relationships/{relationship-name}")
     public Response replaceRelationship(@PathParam("resource-type") String resourceType,
                                         @PathParam("id") final String id,
                                         @PathParam("relationship-name") String relationshipName,
                                         final JsonObject input) {
-        // TODO: implement relationship updates
-        return Responses.notImplemented().build();
+        return writeRelationship(resourceType, id, relationshipName, input);
     }
 
+    /**
+     * Add members to a to-many relationship of the resource. Resources that
+     * are already members of the relationship are left as-is.
+     *
+     * @param resourceType the type of the resource
+     * @param id the identifier of the resource
+     * @param relationshipName the name of the relationship
+     * @param input document with the linkage of the members to add
+     * @return 204 (No Content) when the relationship was updated
+     */
     @POST
     @Path("{resource-type}/{id}/relationships/{relationship-name}")
     public Response addRelationship(@PathParam("resource-type") String resourceType,
                                     @PathParam("id") final String id,
                                     @PathParam("relationship-name") String relationshipName,
                                     final JsonObject input) {
-        // TODO: implement relationship updates
-        return Responses.notImplemented().build();
+        return writeRelationship(resourceType, id, relationshipName, input);
     }
 
+    /**
+     * Remove members from a to-many relationship of the resource. Resources
+     * that are not members of the relationship are ignored.
+     *
+     * @param resourceType the type of the resource
+     * @param id the identifier of the resource
+     * @param relationshipName the name of the relationship
+     * @param input document with the linkage of the members to remove
+     * @return 204 (No Content) when the relationship was updated
+     */
     @DELETE
     @Path("{resource-type}/{id}/relationships/{relationship-name}")
     public Response deleteRelationship(@PathParam("resource-type") String resourceType,
                                        @PathParam("id") final String id,
                                        @PathParam("relationship-name") String relationshipName,
                                        final JsonObject input) {
-        // TODO: implement relationship updates
-        return Responses.notImplemented().build();
+        return writeRelationship(resourceType, id, relationshipName, input);
+    }
+
+    /*
+     * The relationship document is validated and processed as the equivalent
+     * document updating only the relationship of the resource. Pointers of any
+     * errors are translated back to the relationship document.
+     */
+    Response writeRelationship(String resourceType, String id, String relationshipName, JsonObject input) {
+        final EntityMeta meta = model.getEntityMeta(resourceType);
+
+        if (meta != null && !meta.isRelatedTo(relationshipName)) {
+            InternalContext context = new InternalContext(request, uriInfo, security, resourceType, id, relationshipName);
+            Responses.notFound(context);
+            return context.getResponseBuilder().build();
+        }
+
+        final JsonObject document = Json.createObjectBuilder()
+                                        .add("data",
+                                             Json.createObjectBuilder()
+                                                 .add("type", resourceType)
+                                                 .add("id", id)
+                                                 .add("relationships",
+                                                      Json.createObjectBuilder()
+                                                          .add(relationshipName, input != null ? input : JsonValue.NULL)))
+                                        .build();
+
+        final InternalContext context = conditional(new InternalContext(request, uriInfo, security, resourceType, id, relationshipName, document));
+        final Response response = writeEntity(context,
+                                              persistence::updateRelationship,
+                                              json -> context.setResponseBuilder(Response.noContent()));
+
+        if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
+            return response;
+        }
+
+        final String relationshipPointer = "/data/relationships/" + relationshipName;
+
+        return Responses.translatePointers(response, pointer -> {
+            if (!pointer.startsWith(relationshipPointer)) {
+                return pointer;
+            }
+            String linkagePointer = pointer.substring(relationshipPointer.length());
+            return linkagePointer.isEmpty() ? "/data" : linkagePointer;
+        });
     }
 
     @PATCH
@@ -363,20 +533,171 @@ public abstract class JsonApiResource {
                            @PathParam("id") String id,
                            final JsonObject input) {
 
-        InternalContext context = new InternalContext(request, uriInfo, security, resourceType, id, input);
-        return writeEntity(context, persistence::update, response -> Responses.ok(context, cacheControl, response));
+        InternalContext context = conditional(new InternalContext(request, uriInfo, security, resourceType, id, input));
+        return writeEntity(context, persistence::update, response -> {
+            if (response.isEmpty()) {
+                // Updated without loading the resource
+                context.setResponseBuilder(Response.noContent());
+            } else {
+                Responses.ok(context, cacheControl, response);
+            }
+        });
     }
 
     @DELETE
     @Path("{resource-type}/{id}")
     public Response delete(@PathParam("resource-type") String resourceType, @PathParam("id") final String id) {
-        InternalContext context = new InternalContext(request, uriInfo, security, resourceType, id);
-        JsonApiHandler<?> handler = findHandler(resourceType, request.getMethod());
+        return removeEntity(conditional(new InternalContext(request, uriInfo, security, resourceType, id)));
+    }
+
+    /*
+     * Writes to an existing resource are conditional on the resource's version
+     * when the request gives `If-Match`.
+     */
+    InternalContext conditional(InternalContext context) {
+        if (headers != null) {
+            context.setIfMatch(headers.getHeaderString(HttpHeaders.IF_MATCH));
+        }
+        return context;
+    }
+
+    /**
+     * Process a JSON:API atomic operations document
+     * (`ext="https://jsonapi.org/ext/atomic"`) containing `add`, `update` and
+     * `remove` operations on resources and relationships. Each operation is
+     * processed as its equivalent single-resource or relationship request,
+     * including validation and the {@link JsonApiHandler} callbacks for the
+     * operation's resource type and method. Resources added by an operation may
+     * be referenced by later operations using their local identifier (`lid`).
+     *
+     * All operations share the transaction of this request and their changes
+     * are flushed together once every operation has been processed, allowing
+     * the JPA provider to send the statements in batches when configured to do
+     * so, e.g. using the `hibernate.jdbc.batch_size` (and optionally
+     * `hibernate.order_inserts`/`hibernate.order_updates`) properties of the
+     * persistence unit with Hibernate. Cached results of the types affected are
+     * invalidated once the changes have been flushed. When any operation fails,
+     * including when the final flush is rejected by the database, a
+     * {@link WebApplicationException} with the errors of that operation (or of
+     * the `atomic:operations` when no single operation is identified) is
+     * thrown so that a transactional resource class rolls back the changes of
+     * all operations.
+     *
+     * @param input the atomic operations document
+     * @return response with the `atomic:results` of the operations
+     */
+    @POST
+    @Path("operations")
+    public Response operations(final JsonObject input) {
+        final InternalContext context = new InternalContext(request, uriInfo, security, null, input);
+        final List<AtomicOperation> operations;
 
         try {
-            EntityMeta meta = model.getEntityMeta(resourceType);
+            operations = AtomicOperation.parse(input);
+        } catch (JsonApiErrorException e) {
+            Responses.error(context, e);
+            return context.getResponseBuilder().build();
+        }
 
-            if (isValidResourceAndMethodAllowed(context, meta, id)) {
+        final Map<String, String> localIds = new HashMap<>();
+        final JsonArrayBuilder results = Json.createArrayBuilder();
+        boolean empty = true;
+
+        persistence.deferFlush();
+
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                persistence.setDeferredOperation(i);
+                JsonObject result = execute(operations.get(i), localIds);
+                empty &= result.isEmpty();
+                results.add(result);
+            }
+
+            flush(context, operations);
+        } finally {
+            persistence.endDeferredFlush();
+        }
+
+        if (empty) {
+            return Response.noContent().build();
+        }
+
+        return Response.ok(Json.createObjectBuilder().add(AtomicOperation.KEY_RESULTS, results).build(),
+                           JsonApiMediaType.APPLICATION_JSONAPI_ATOMIC_TYPE)
+                       .build();
+    }
+
+    void flush(InternalContext context, List<AtomicOperation> operations) {
+        try {
+            persistence.flush();
+        } catch (JsonApiErrorException e) {
+            final int index = persistence.getDeferredOperation(e);
+            final UnaryOperator<String> pointers;
+
+            if (index >= 0) {
+                pointers = operations.get(index)::getPointer;
+            } else {
+                // The failure may not be attributed to a single operation
+                pointers = pointer -> '/' + AtomicOperation.KEY_OPERATIONS;
+            }
+
+            Responses.error(context, e);
+            throw new WebApplicationException(Responses.operationFailed(context.getResponseBuilder().build(), pointers));
+        }
+    }
+
+    JsonObject execute(AtomicOperation operation, Map<String, String> localIds) {
+        final Request operationRequest = new OperationRequest(request, operation.getMethod());
+        final InternalContext context;
+
+        try {
+            context = new InternalContext(operationRequest,
+                                          uriInfo,
+                                          security,
+                                          operation.getResourceType(),
+                                          operation.getResourceId(localIds),
+                                          operation.getRelationshipName(),
+                                          operation.getDocument(localIds));
+        } catch (JsonApiErrorException e) {
+            InternalContext errorContext = new InternalContext(operationRequest, uriInfo, security, operation.getResourceType());
+            Responses.error(errorContext, e);
+            throw new WebApplicationException(errorContext.getResponseBuilder().build());
+        }
+
+        final Consumer<JsonObject> responder = json -> context.setResponseBuilder(Response.ok(json));
+        final Response response;
+
+        if (operation.isRelationship()) {
+            response = writeEntity(context, persistence::updateRelationship, responder);
+        } else if (HttpMethod.POST.equals(operation.getMethod())) {
+            response = writeEntity(context, persistence::create, responder);
+        } else if (HttpMethod.PATCH.equals(operation.getMethod())) {
+            response = writeEntity(context, persistence::update, responder);
+        } else {
+            response = removeEntity(context);
+        }
+
+        if (response.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+            throw new WebApplicationException(Responses.operationFailed(response, operation::getPointer));
+        }
+
+        if (operation.isRelationship() || !(response.getEntity() instanceof JsonObject)) {
+            return JsonValue.EMPTY_JSON_OBJECT;
+        }
+
+        JsonObject data = ((JsonObject) response.getEntity()).getJsonObject("data");
+        operation.putLocalId(localIds, data.getString("id"));
+
+        return Json.createObjectBuilder().add("data", data).build();
+    }
+
+    Response removeEntity(InternalContext context) {
+        JsonApiHandler<?> handler = findHandler(context.getResourceType(), context.getRequest().getMethod());
+
+        try {
+            EntityMeta meta = model.getEntityMeta(context.getResourceType());
+
+            if (isValidResourceAndMethodAllowed(context, meta, context.getResourceId())) {
                 handler.onRequest(context);
 
                 if (persistence.delete(context, handler)) {
@@ -401,7 +722,7 @@ public abstract class JsonApiResource {
                          BiFunction<InternalContext, JsonApiHandler<?>, JsonObject> persist,
                          Consumer<JsonObject> responder) {
 
-        JsonApiHandler<?> handler = findHandler(context.getResourceType(), request.getMethod());
+        JsonApiHandler<?> handler = findHandler(context.getResourceType(), context.getRequest().getMethod());
 
         try {
             EntityMeta meta = model.getEntityMeta(context.getResourceType());
@@ -409,7 +730,7 @@ public abstract class JsonApiResource {
             if (isValidResourceAndMethodAllowed(context, meta, context.getResourceId())) {
                 context.setEntityMeta(meta);
                 handler.onRequest(context);
-                Set<ConstraintViolation<?>> violations = validateEntity(context.getResourceType(), null, context.getRequestEntity());
+                Set<ConstraintViolation<?>> violations = validateEntity(context);
                 handler.afterValidation(context, violations);
 
                 if (violations.isEmpty()) {
@@ -447,20 +768,84 @@ public abstract class JsonApiResource {
         }
     }
 
+    /**
+     * Discard the handlers resolved for each resource type and HTTP method so
+     * that they are resolved again from the available {@link JsonApiHandler}
+     * beans on next use. Applications that register handlers dynamically
+     * should call this method after the set of handlers changes.
+     */
+    protected void refreshHandlers() {
+        model.getHandlers().clear();
+    }
+
+    /**
+     * Get the statistics of the resource cache of a resource type, as
+     * configured by {@link JsonApiResourceType.Builder#resourceCache}.
+     *
+     * @param resourceType name of the resource type
+     * @return a snapshot of the cache's statistics, or null when the resource
+     *         type is unknown or does not cache single resource reads
+     */
+    public JsonApiCacheStatistics getResourceCacheStatistics(String resourceType) {
+        final EntityMeta meta = model.getEntityMeta(resourceType);
+        final ExpiringCache<String, JsonObject> cache = meta != null ? meta.getResourceCache() : null;
+
+        if (cache == null) {
+            return null;
+        }
+
+        return new JsonApiCacheStatistics(cache.size(),
+                                          cache.getHitCount(),
+                                          cache.getMissCount(),
+                                          cache.getEvictionCount());
+    }
+
+    /*
+     * Handlers for known resource types are resolved once and shared by later
+     * requests for the same type and method, until refreshed, when every
+     * handler is a normal scoped bean (i.e. a client proxy). Handlers of other
+     * scopes, e.g. `@Dependent`, belong to this resource instance and are
+     * resolved again for each request.
+     */
     @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
     JsonApiHandler<?> findHandler(String resourceType, String httpMethod) {
-        List<JsonApiHandler<?>> available = new ArrayList<>(2);
+        final String key = resourceType + ' ' + httpMethod;
+        final Map<String, JsonApiHandler<?>> resolved = model.getHandlers();
+        final JsonApiHandler<?> cached = resolved.get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<JsonApiHandler<?>> available = new ArrayList<>(2);
+        final List<Class<?>> implementations = new ArrayList<>(2);
+        boolean shared = model.getEntityMeta(resourceType) != null;
+
+        for (Instance.Handle<JsonApiHandler<?>> handle : handlers.handles()) {
+            final JsonApiHandler<?> handler = handle.get();
 
-        for (JsonApiHandler<?> handler : handlers) {
             if (handler.isHandler(resourceType, httpMethod)) {
+                final Bean<JsonApiHandler<?>> bean = handle.getBean();
+                final Class<?> beanClass = bean.getBeanClass();
+
                 available.add(handler);
+                implementations.add(JsonApiHandler.class.isAssignableFrom(beanClass) ? beanClass : null);
+                shared &= bean.getScope().isAnnotationPresent(NormalScope.class);
             }
         }
 
-        if (!available.isEmpty()) {
-            return new JsonApiHandlerChain(available);
+        final JsonApiHandler<?> handler;
+
+        if (available.isEmpty()) {
+            handler = DEFAULT_HANDLER;
+        } else {
+            handler = new JsonApiHandlerChain(available, implementations);
+        }
+
+        if (shared) {
+            resolved.putIfAbsent(key, handler);
         }
 
-        return DEFAULT_HANDLER;
+        return handler;
     }
 }
@@ -1,9 +1,11 @@
 package io.xlate.jsonapi.rvp;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -31,6 +33,19 @@ public class JsonApiResourceType<T> {
 
     private final Function<String, Object> idReader;
     private final String principalNamePath;
+    private final boolean streaming;
+    private final boolean totalCount;
+    private final Duration totalCountTimeToLive;
+    private final int totalCountMaximumSize;
+    private final boolean concurrentQueries;
+    private final Duration resourceCacheTimeToLive;
+    private final int resourceCacheMaximumSize;
+    private final Duration responseCacheTimeToLive;
+    private final int responseCacheMaximumSize;
+    private final String versionAttribute;
+    private final boolean versionEntityTags;
+    private final boolean updateWithoutLoad;
+    private final JsonApiValidationMode validationMode;
 
     public static <T> Builder<T> define(String name, Class<T> klass) {
         return new Builder<>(name, klass);
@@ -49,6 +64,19 @@ public class JsonApiResourceType<T> {
         private String exposedIdAttribute;
         private Function<String, Object> idReader;
         private String principalNamePath;
+        private boolean streaming;
+        private boolean totalCount = true;
+        private Duration totalCountTimeToLive;
+        private int totalCountMaximumSize;
+        private boolean concurrentQueries;
+        private Duration resourceCacheTimeToLive;
+        private int resourceCacheMaximumSize;
+        private Duration responseCacheTimeToLive;
+        private int responseCacheMaximumSize;
+        private String versionAttribute;
+        private boolean versionEntityTags;
+        private boolean updateWithoutLoad;
+        private JsonApiValidationMode validationMode = JsonApiValidationMode.NEW_TRANSACTION;
 
         private Builder(String name, Class<T> klass) {
             this.name = name;
@@ -65,7 +93,20 @@ public class JsonApiResourceType<T> {
                                              uniqueTuples,
                                              exposedIdAttribute,
                                              idReader,
-                                             principalNamePath);
+                                             principalNamePath,
+                                             streaming,
+                                             totalCount,
+                                             totalCountTimeToLive,
+                                             totalCountMaximumSize,
+                                             concurrentQueries,
+                                             resourceCacheTimeToLive,
+                                             resourceCacheMaximumSize,
+                                             responseCacheTimeToLive,
+                                             responseCacheMaximumSize,
+                                             versionAttribute,
+                                             versionEntityTags,
+                                             updateWithoutLoad,
+                                             validationMode);
         }
 
         public Builder<T> methods(Class<?>... methods) {
@@ -115,6 +156,196 @@ public class JsonApiResourceType<T> {
             this.principalNamePath = path;
             return this;
         }
+
+        /**
+         * Write collection (index) responses for this type directly to the
+         * response stream as rows are read from the database rather than
+         * building the complete document in memory. The response is read
+         * with a separate EntityManager of the persistence unit, opened while
+         * the response entity is written (after the resource method has
+         * returned), and so sees only committed data.
+         *
+         * @param streaming true if index responses should be streamed
+         * @return the builder
+         */
+        public Builder<T> streaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+
+        /**
+         * Set whether paged collection responses include the total number of
+         * results in `meta.totalResults` by default. Clients may override the
+         * default using the `page[total]` query parameter. Enabled unless
+         * otherwise configured.
+         *
+         * @param totalCount true if the total count should be given by default
+         * @return the builder
+         */
+        public Builder<T> totalCount(boolean totalCount) {
+            this.totalCount = totalCount;
+            return this;
+        }
+
+        /**
+         * Cache the total number of results of paged collection requests for
+         * the given duration. Totals are cached separately for each
+         * combination of filters, related resource, and user principal.
+         * <p>
+         * Cached totals are discarded when a resource of this type, or of a
+         * type connected to it by relationships, is changed through the API,
+         * and again when the JTA transaction of the change completes (see
+         * {@link JsonApiResource#getTransactionSynchronizationRegistry()}).
+         * Changes made by other means are reflected only once the cached
+         * totals expire.
+         *
+         * @param timeToLive duration a total remains valid after it is counted
+         * @param maximumSize maximum number of totals to retain
+         * @return the builder
+         */
+        public Builder<T> totalCountCache(Duration timeToLive, int maximumSize) {
+            this.totalCountTimeToLive = timeToLive;
+            this.totalCountMaximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Run the total count and the queries for included resources and
+         * relationship counts of collection responses concurrently, each with
+         * a separate EntityManager created by the persistence context's
+         * factory. The concurrent queries only see committed data and run
+         * on the executor provided by {@code JsonApiResource#getQueryExecutor()};
+         * without one they run in the requesting thread. The total count is
+         * only queried when it cannot be determined from the page. Disabled
+         * unless set to true.
+         *
+         * @param concurrentQueries true if independent queries should run concurrently
+         * @return the builder
+         */
+        public Builder<T> concurrentQueries(boolean concurrentQueries) {
+            this.concurrentQueries = concurrentQueries;
+            return this;
+        }
+
+        /**
+         * Cache the responses of single resource reads for the given duration.
+         * Responses are cached separately for each combination of resource
+         * identifier, entity version (when the entity has a version
+         * attribute), sparse fieldsets, included relationships, base URI and
+         * user principal. A lightweight query confirms the resource exists
+         * (and obtains its version) before the cache is consulted. All cached
+         * responses of the type are discarded when a resource of the type, or
+         * of any type transitively connected to it by relationships, is
+         * created, updated, or deleted through the API; changes made by other
+         * means are reflected once the cached responses expire. The cache is
+         * not used when a handler of the type implements `afterFind`. Related
+         * resources included in a response are read from the database and
+         * are not served from the cache of their own type. Statistics are
+         * available from {@link JsonApiResource#getResourceCacheStatistics}.
+         *
+         * @param timeToLive duration a response remains valid after it is cached
+         * @param maximumSize maximum number of responses to retain
+         * @return the builder
+         */
+        public Builder<T> resourceCache(Duration timeToLive, int maximumSize) {
+            this.resourceCacheTimeToLive = timeToLive;
+            this.resourceCacheMaximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Cache collection (index) responses for the given duration. Responses
+         * are cached separately for each combination of query parameters, base
+         * URI and user principal. All cached responses of the type are
+         * discarded when a resource of the type, or of any type transitively
+         * connected to it by relationships, is created, updated, or deleted
+         * through the API, and again after the transaction completes when
+         * running in a JTA transaction. In a model where every type is
+         * connected, any write discards the cached responses of every type.
+         * Changes made by other means are reflected once the cached responses
+         * expire. Streamed responses are not cached.
+         *
+         * @param timeToLive duration a response remains valid after it is cached
+         * @param maximumSize maximum number of responses to retain
+         * @return the builder
+         */
+        public Builder<T> responseCache(Duration timeToLive, int maximumSize) {
+            this.responseCacheTimeToLive = timeToLive;
+            this.responseCacheMaximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Name of an attribute, e.g. a last-modified timestamp, holding the
+         * version of the resource. When not set, the entity's `@Version`
+         * attribute (if any) is used.
+         *
+         * @param versionAttribute name of the attribute holding the resource version
+         * @return the builder
+         */
+        public Builder<T> versionAttribute(String versionAttribute) {
+            this.versionAttribute = versionAttribute;
+            return this;
+        }
+
+        /**
+         * Derive the entity tags of single resource responses from the
+         * resource version rather than from the content of the response.
+         * Conditional reads (`If-None-Match`) of responses that render no
+         * relationships and include no related resources (e.g. by sparse
+         * fieldsets) are then answered after a single version query, without
+         * reading or serializing the resource. Related resources may change
+         * without changing the version, so other responses are tagged with the
+         * version and a hash of their content once read. Updates and deletes
+         * with `If-Match` are answered with 412 (Precondition Failed) unless
+         * one of the given tags was derived from the current version. Ignored
+         * for types without a version attribute.
+         *
+         * @param versionEntityTags true if entity tags should be derived from the resource version
+         * @return the builder
+         */
+        public Builder<T> versionEntityTags(boolean versionEntityTags) {
+            this.versionEntityTags = versionEntityTags;
+            return this;
+        }
+
+        /**
+         * Apply updates (PATCH or PUT) containing only attributes with a single
+         * UPDATE statement limited to the given attributes, without loading the
+         * resource. Each attribute is validated individually, so constraints
+         * of the entity class and constraints involving several properties are
+         * not evaluated. Successful updates respond with 204 (No Content).
+         * Updates with relationships, updates of attributes mapped with
+         * `updatable = false`, updates processed within an atomic operations
+         * request, updates of a type whose version attribute is not numeric
+         * (and so may not be incremented by the statement), updates by a user
+         * whose principal name path traverses a relationship (and so may not
+         * be joined by the statement), and updates for which a handler
+         * implements any of `beforeUpdate`, `afterUpdate`, `beforeMerge` or
+         * `afterMerge` continue to load the resource. Disabled unless set to
+         * true.
+         *
+         * @param updateWithoutLoad true if attribute updates should not load the resource
+         * @return the builder
+         */
+        public Builder<T> updateWithoutLoad(boolean updateWithoutLoad) {
+            this.updateWithoutLoad = updateWithoutLoad;
+            return this;
+        }
+
+        /**
+         * Set the transaction in which the constraints of the entity are
+         * validated when a resource is created or updated.
+         * {@link JsonApiValidationMode#NEW_TRANSACTION} unless otherwise
+         * configured.
+         *
+         * @param validationMode the validation mode
+         * @return the builder
+         */
+        public Builder<T> validationMode(JsonApiValidationMode validationMode) {
+            this.validationMode = Objects.requireNonNull(validationMode);
+            return this;
+        }
     }
 
     @SuppressWarnings("java:S107")
@@ -127,7 +358,20 @@ public class JsonApiResourceType<T> {
             Map<String, Set<String>> uniqueTuples,
             String exposedIdAttribute,
             Function<String, Object> idReader,
-            String principalNamePath) {
+            String principalNamePath,
+            boolean streaming,
+            boolean totalCount,
+            Duration totalCountTimeToLive,
+            int totalCountMaximumSize,
+            boolean concurrentQueries,
+            Duration resourceCacheTimeToLive,
+            int resourceCacheMaximumSize,
+            Duration responseCacheTimeToLive,
+            int responseCacheMaximumSize,
+            String versionAttribute,
+            boolean versionEntityTags,
+            boolean updateWithoutLoad,
+            JsonApiValidationMode validationMode) {
         super();
         this.name = name;
         this.klass = klass;
@@ -155,6 +399,19 @@ public class JsonApiResourceType<T> {
         this.uniqueTuples = Map.copyOf(uniqueTuples);
         this.exposedIdAttribute = exposedIdAttribute;
         this.principalNamePath = principalNamePath;
+        this.streaming = streaming;
+        this.totalCount = totalCount;
+        this.totalCountTimeToLive = totalCountTimeToLive;
+        this.totalCountMaximumSize = totalCountMaximumSize;
+        this.concurrentQueries = concurrentQueries;
+        this.resourceCacheTimeToLive = resourceCacheTimeToLive;
+        this.resourceCacheMaximumSize = resourceCacheMaximumSize;
+        this.responseCacheTimeToLive = responseCacheTimeToLive;
+        this.responseCacheMaximumSize = responseCacheMaximumSize;
+        this.versionAttribute = versionAttribute;
+        this.versionEntityTags = versionEntityTags;
+        this.updateWithoutLoad = updateWithoutLoad;
+        this.validationMode = validationMode;
 
         if (idReader != null) {
             this.idReader = idReader;
@@ -227,4 +484,56 @@ public class JsonApiResourceType<T> {
     public String getPrincipalNamePath() {
         return principalNamePath;
     }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public boolean isTotalCount() {
+        return totalCount;
+    }
+
+    public Duration getTotalCountTimeToLive() {
+        return totalCountTimeToLive;
+    }
+
+    public int getTotalCountMaximumSize() {
+        return totalCountMaximumSize;
+    }
+
+    public boolean isConcurrentQueries() {
+        return concurrentQueries;
+    }
+
+    public Duration getResourceCacheTimeToLive() {
+        return resourceCacheTimeToLive;
+    }
+
+    public int getResourceCacheMaximumSize() {
+        return resourceCacheMaximumSize;
+    }
+
+    public Duration getResponseCacheTimeToLive() {
+        return responseCacheTimeToLive;
+    }
+
+    public int getResponseCacheMaximumSize() {
+        return responseCacheMaximumSize;
+    }
+
+    public String getVersionAttribute() {
+        return versionAttribute;
+    }
+
+    public boolean isVersionEntityTags() {
+        return versionEntityTags;
+    }
+
+    public boolean isUpdateWithoutLoad() {
+        return updateWithoutLoad;
+    }
+
+    public JsonApiValidationMode getValidationMode() {
+        return validationMode;
+    }
 }
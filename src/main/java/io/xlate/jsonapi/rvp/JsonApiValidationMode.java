@@ -0,0 +1,43 @@
+package io.xlate.jsonapi.rvp;
+
+import jakarta.validation.Payload;
+
+/**
+ * Transaction in which the Bean Validation constraints of an entity are
+ * evaluated when a resource is created or updated.
+ */
+public enum JsonApiValidationMode {
+
+    /**
+     * Validate in a new transaction, suspending the transaction of the request
+     * while the entity is validated. Queries issued by constraint validators
+     * do not flush the pending changes of the request. This is the default.
+     */
+    NEW_TRANSACTION,
+
+    /**
+     * Validate in the transaction of the request. Constraint validators must
+     * not query the database, since a query may flush the entity before it
+     * has been validated.
+     */
+    CALLER_TRANSACTION,
+
+    /**
+     * Validate in a new transaction only when any constraint of the entity
+     * class (including cascaded beans) carries the {@link DatabaseAccess}
+     * payload, otherwise validate in the transaction of the request.
+     */
+    NEW_TRANSACTION_IF_REQUIRED;
+
+    /**
+     * Payload identifying a constraint whose validator accesses the database,
+     * e.g. to verify uniqueness.
+     *
+     * <pre>
+     * &#64;UniqueName(payload = JsonApiValidationMode.DatabaseAccess.class)
+     * private String name;
+     * </pre>
+     */
+    public interface DatabaseAccess extends Payload {
+    }
+}
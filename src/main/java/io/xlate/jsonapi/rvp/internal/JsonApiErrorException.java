@@ -31,6 +31,14 @@ public class JsonApiErrorException extends RuntimeException {
         this.errors = null;
     }
 
+    public JsonApiErrorException(StatusType status, String title, String detail, Throwable cause) {
+        super(detail, cause);
+        this.status = status;
+        this.title = title;
+        this.detail = detail;
+        this.errors = null;
+    }
+
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
         out.writeBoolean(errors != null);
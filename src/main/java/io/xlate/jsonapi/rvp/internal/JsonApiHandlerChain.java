@@ -1,6 +1,7 @@
 package io.xlate.jsonapi.rvp.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -9,13 +10,118 @@ import jakarta.validation.ConstraintViolation;
 import io.xlate.jsonapi.rvp.JsonApiContext;
 import io.xlate.jsonapi.rvp.JsonApiHandler;
 
+/**
+ * Composite of the handlers for a resource type and HTTP method. Each hook
+ * invokes only the handlers that override it, so hooks left to the
+ * {@link JsonApiHandler} defaults by every handler in the chain cost nothing.
+ * Overridden hooks are determined from each handler's implementation class
+ * (e.g. the bean class of a CDI bean), not from the class of the instance,
+ * which may be a client proxy overriding every method.
+ */
 public class JsonApiHandlerChain implements JsonApiHandler<Object> {
 
-    private final List<JsonApiHandler<Object>> chain = new ArrayList<>();
+    private final List<JsonApiHandler<Object>> onRequest;
+    private final List<JsonApiHandler<Object>> afterValidation;
+    private final List<JsonApiHandler<Object>> afterFind;
+    private final List<JsonApiHandler<Object>> beforePersist;
+    private final List<JsonApiHandler<Object>> afterPersist;
+    private final List<JsonApiHandler<Object>> beforeUpdate;
+    private final List<JsonApiHandler<Object>> afterUpdate;
+    private final List<JsonApiHandler<Object>> beforeMerge;
+    private final List<JsonApiHandler<Object>> afterMerge;
+    private final List<JsonApiHandler<Object>> beforeDelete;
+    private final List<JsonApiHandler<Object>> afterDelete;
+    private final List<JsonApiHandler<Object>> beforeResponse;
+
+    /**
+     * Create a chain of the given handlers.
+     *
+     * @param chain the handlers, in order of invocation
+     * @param implementations implementation class of each handler, in the
+     *        same order as the handlers. A null class (e.g. of a bean created
+     *        by a producer method) is treated as overriding every hook.
+     */
+    public JsonApiHandlerChain(List<JsonApiHandler<?>> chain, List<Class<?>> implementations) {
+        onRequest = overriding(chain, implementations, "onRequest", JsonApiContext.class);
+        afterValidation = overriding(chain, implementations, "afterValidation", JsonApiContext.class, Set.class);
+        afterFind = overriding(chain, implementations, "afterFind", JsonApiContext.class, Object.class);
+        beforePersist = overriding(chain, implementations, "beforePersist", JsonApiContext.class, Object.class);
+        afterPersist = overriding(chain, implementations, "afterPersist", JsonApiContext.class, Object.class);
+        beforeUpdate = overriding(chain, implementations, "beforeUpdate", JsonApiContext.class, Object.class);
+        afterUpdate = overriding(chain, implementations, "afterUpdate", JsonApiContext.class, Object.class);
+        beforeMerge = overriding(chain, implementations, "beforeMerge", JsonApiContext.class, Object.class);
+        afterMerge = overriding(chain, implementations, "afterMerge", JsonApiContext.class, Object.class);
+        beforeDelete = overriding(chain, implementations, "beforeDelete", JsonApiContext.class, Object.class);
+        afterDelete = overriding(chain, implementations, "afterDelete", JsonApiContext.class, Object.class);
+        beforeResponse = overriding(chain, implementations, "beforeResponse", JsonApiContext.class);
+    }
 
     @SuppressWarnings("unchecked")
-    public JsonApiHandlerChain(List<JsonApiHandler<?>> chain) {
-        chain.forEach(h -> this.chain.add((JsonApiHandler<Object>) h));
+    static List<JsonApiHandler<Object>> overriding(List<JsonApiHandler<?>> chain,
+                                                   List<Class<?>> implementations,
+                                                   String hook,
+                                                   Class<?>... parameterTypes) {
+        List<JsonApiHandler<Object>> handlers = new ArrayList<>(chain.size());
+
+        for (int i = 0, m = chain.size(); i < m; i++) {
+            if (isOverridden(implementations.get(i), hook, parameterTypes)) {
+                handlers.add((JsonApiHandler<Object>) chain.get(i));
+            }
+        }
+
+        return handlers.isEmpty() ? Collections.emptyList() : handlers;
+    }
+
+    static boolean isOverridden(Class<?> implementation, String hook, Class<?>... parameterTypes) {
+        if (implementation == null) {
+            return true;
+        }
+
+        try {
+            return implementation.getMethod(hook, parameterTypes).getDeclaringClass() != JsonApiHandler.class;
+        } catch (NoSuchMethodException e) {
+            // Not expected for a JsonApiHandler, but invoking the hook is always safe
+            return true;
+        }
+    }
+
+    /**
+     * Determine whether the handler (or any handler of a chain) implements any
+     * of the hooks that receive the entity being updated.
+     *
+     * @param handler the handler for the resource type and HTTP method
+     * @return true if an entity update hook is implemented
+     */
+    public static boolean hasEntityUpdateHooks(JsonApiHandler<?> handler) {
+        if (handler instanceof JsonApiHandlerChain) {
+            JsonApiHandlerChain chain = (JsonApiHandlerChain) handler;
+            return !chain.beforeUpdate.isEmpty()
+                    || !chain.afterUpdate.isEmpty()
+                    || !chain.beforeMerge.isEmpty()
+                    || !chain.afterMerge.isEmpty();
+        }
+
+        final Class<?> implementation = handler.getClass();
+
+        return isOverridden(implementation, "beforeUpdate", JsonApiContext.class, Object.class)
+                || isOverridden(implementation, "afterUpdate", JsonApiContext.class, Object.class)
+                || isOverridden(implementation, "beforeMerge", JsonApiContext.class, Object.class)
+                || isOverridden(implementation, "afterMerge", JsonApiContext.class, Object.class);
+    }
+
+    /**
+     * Determine whether the handler (or any handler of a chain) implements the
+     * hook that receives the entity found by a read.
+     *
+     * @param handler the handler for the resource type and HTTP method
+     * @return true if the find hook is implemented
+     */
+    public static boolean hasFindHooks(JsonApiHandler<?> handler) {
+        if (handler instanceof JsonApiHandlerChain) {
+            return !((JsonApiHandlerChain) handler).afterFind.isEmpty();
+        }
+
+        return isOverridden(handler.getClass(), "afterFind", JsonApiContext.class, Object.class);
     }
 
     @Override
@@ -25,62 +131,62 @@ public class JsonApiHandlerChain implements JsonApiHandler<Object> {
 
     @Override
     public void onRequest(JsonApiContext context) {
-        chain.forEach(handler -> handler.onRequest(context));
+        onRequest.forEach(handler -> handler.onRequest(context));
     }
 
     @Override
     public void afterValidation(JsonApiContext context, Set<ConstraintViolation<?>> violations) {
-        chain.forEach(handler -> handler.afterValidation(context, violations));
+        afterValidation.forEach(handler -> handler.afterValidation(context, violations));
     }
 
     @Override
     public void afterFind(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.afterFind(context, entity));
+        afterFind.forEach(handler -> handler.afterFind(context, entity));
     }
 
     @Override
     public void beforePersist(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.beforePersist(context, entity));
+        beforePersist.forEach(handler -> handler.beforePersist(context, entity));
     }
 
     @Override
     public void afterPersist(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.afterPersist(context, entity));
+        afterPersist.forEach(handler -> handler.afterPersist(context, entity));
     }
 
     @Override
     public void beforeUpdate(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.beforeUpdate(context, entity));
+        beforeUpdate.forEach(handler -> handler.beforeUpdate(context, entity));
     }
 
     @Override
     public void afterUpdate(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.afterUpdate(context, entity));
+        afterUpdate.forEach(handler -> handler.afterUpdate(context, entity));
     }
 
     @Override
     public void beforeMerge(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.beforeMerge(context, entity));
+        beforeMerge.forEach(handler -> handler.beforeMerge(context, entity));
     }
 
     @Override
     public void afterMerge(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.afterMerge(context, entity));
+        afterMerge.forEach(handler -> handler.afterMerge(context, entity));
     }
 
     @Override
     public void beforeDelete(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.beforeDelete(context, entity));
+        beforeDelete.forEach(handler -> handler.beforeDelete(context, entity));
     }
 
     @Override
     public void afterDelete(JsonApiContext context, Object entity) {
-        chain.forEach(handler -> handler.afterDelete(context, entity));
+        afterDelete.forEach(handler -> handler.afterDelete(context, entity));
     }
 
     @Override
     public void beforeResponse(JsonApiContext context) {
-        chain.forEach(handler -> handler.beforeResponse(context));
+        beforeResponse.forEach(handler -> handler.beforeResponse(context));
     }
 
 }
@@ -0,0 +1,149 @@
+package io.xlate.jsonapi.rvp.internal.cache.entity;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache with least-recently-used eviction where each entry
+ * (optionally) expires a fixed duration after it was stored. Instances are
+ * shared between requests and are safe for concurrent use.
+ *
+ * @param <K> type of the cache keys
+ * @param <V> type of the cached values
+ */
+public class ExpiringCache<K, V> {
+
+    static class Entry<V> {
+        final V value;
+        final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private static final long NEVER = -1;
+
+    private final long timeToLive;
+    private final Map<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache where entries are only removed when evicted to make
+     * room for newer entries or when invalidated.
+     *
+     * @param maximumSize maximum number of entries to retain
+     */
+    public ExpiringCache(int maximumSize) {
+        this(NEVER, maximumSize);
+    }
+
+    public ExpiringCache(Duration timeToLive, int maximumSize) {
+        this(positive(timeToLive).toNanos(), maximumSize);
+    }
+
+    private ExpiringCache(long timeToLive, int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, ExpiringCache.Entry<V>> eldest) {
+                if (size() > maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static Duration positive(Duration timeToLive) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time-to-live must be positive: " + timeToLive);
+        }
+        return timeToLive;
+    }
+
+    boolean isLive(Entry<V> entry) {
+        return timeToLive == NEVER || entry.expires - System.nanoTime() > 0;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+
+        if (entry != null && isLive(entry)) {
+            hits.increment();
+            return entry.value;
+        }
+
+        if (entry != null) {
+            entries.remove(key);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, timeToLive == NEVER ? NEVER : System.nanoTime() + timeToLive));
+    }
+
+    /**
+     * Retrieve the value for the key, computing and storing it when absent or
+     * expired. The value is computed without holding the cache's lock, so
+     * concurrent callers may compute the same value more than once.
+     *
+     * @param key the cache key
+     * @param loader function to compute the value for the key when not cached
+     * @return the cached or computed value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+
+        if (value == null) {
+            value = loader.apply(key);
+
+            if (value != null) {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
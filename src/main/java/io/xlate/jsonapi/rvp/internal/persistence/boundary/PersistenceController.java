@@ -2,42 +2,71 @@ package io.xlate.jsonapi.rvp.internal.persistence.boundary;
 
 import static java.util.function.Predicate.not;
 
+import java.io.OutputStream;
 import java.lang.reflect.AccessibleObject;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.FlushModeType;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.Parameter;
 import jakarta.persistence.PersistenceException;
 import jakarta.persistence.Query;
 import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.From;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.ParameterExpression;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
@@ -45,14 +74,23 @@ import jakarta.persistence.criteria.Selection;
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.Bindable;
 import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 
 import io.xlate.jsonapi.rvp.JsonApiContext.Attributes;
 import io.xlate.jsonapi.rvp.JsonApiHandler;
+import io.xlate.jsonapi.rvp.JsonApiStatus;
 import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
+import io.xlate.jsonapi.rvp.internal.JsonApiHandlerChain;
+import io.xlate.jsonapi.rvp.internal.cache.entity.ExpiringCache;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.Entity;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
@@ -60,54 +98,197 @@ import io.xlate.jsonapi.rvp.internal.rs.boundary.ResourceObjectReader;
 import io.xlate.jsonapi.rvp.internal.rs.boundary.ResourceObjectWriter;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalContext;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalQuery;
+import io.xlate.jsonapi.rvp.internal.rs.entity.PageCursor;
+import io.xlate.jsonapi.rvp.internal.validation.boundary.JsonApiUriQueryValidator;
 import io.xlate.jsonapi.rvp.internal.validation.boundary.TransactionalValidator;
 
 public class PersistenceController {
 
     private static final String ALIAS_PRE = "io_xlate_jsonapi_rvp_";
+    private static final String ALIAS_RELATED = ALIAS_PRE + "_related";
+    private static final String ALIAS_ID = ALIAS_PRE + "_id";
+    static final int STREAM_BATCH_SIZE = 100;
+    static final int[] IN_LIST_SIZES = { 16, 64, 256 };
+
+    static final String PARAM_PRINCIPAL = "principal";
+    static final String PARAM_ID = "id";
+    static final String PARAM_RELATED_ID = "relatedId";
+    static final String PARAM_IDS = "ids";
+    static final String PARAM_FILTER = "filter";
+
+    static final String PENDING_INVALIDATION_KEY = PersistenceController.class.getName() + ".pendingInvalidation";
+    static final String PARAM_KEY = "key";
+
+    /*
+     * Provider-specific hints requesting that loaded entities are not
+     * snapshotted for dirty checking. Unknown hints are ignored by the
+     * provider.
+     */
+    static final Map<String, Object> READ_ONLY_HINTS = Map.of("org.hibernate.readOnly", Boolean.TRUE,
+                                                              "eclipselink.read-only", "True");
 
     private final EntityManager em;
     private final EntityMetamodel model;
     private final TransactionalValidator validator;
+    private final Executor executor;
+    private final TransactionSynchronizationRegistry transactions;
     private final ResourceObjectReader reader;
     private final ResourceObjectWriter writer;
-
-    public PersistenceController(EntityManager em, EntityMetamodel model, TransactionalValidator validator) {
+    private boolean flushDeferred;
+    private int deferredOperation;
+    private final Map<Object, Integer> deferredWrites = new IdentityHashMap<>();
+    private final Set<EntityMeta> deferredInvalidations = new HashSet<>();
+
+    public PersistenceController(EntityManager em,
+                                 EntityMetamodel model,
+                                 TransactionalValidator validator,
+                                 Executor executor,
+                                 TransactionSynchronizationRegistry transactions) {
         this.em = em;
         this.model = model;
         this.validator = validator;
+        this.executor = executor;
+        this.transactions = transactions;
         this.reader = new ResourceObjectReader(model);
         this.writer = new ResourceObjectWriter(model);
     }
 
-    @SuppressWarnings({ "rawtypes", "java:S3740" })
     static class FetchQueries {
         final TypedQuery<Tuple> dataQuery;
         final Set<String> counted;
-        final TypedQuery<Long> countQuery;
-        final Join relatedJoin;
+        final Function<EntityManager, TypedQuery<Long>> countQuery;
+        final Set<String> projection;
 
-        public FetchQueries(TypedQuery<Tuple> dataQuery, Set<String> counted, TypedQuery<Long> countQuery, Join relatedJoin) {
+        public FetchQueries(TypedQuery<Tuple> dataQuery,
+                            Set<String> counted,
+                            Function<EntityManager, TypedQuery<Long>> countQuery,
+                            Set<String> projection) {
             super();
             this.dataQuery = dataQuery;
             this.counted = counted;
             this.countQuery = countQuery;
-            this.relatedJoin = relatedJoin;
+            this.projection = projection;
+        }
+    }
+
+    /*
+     * Queries of a plan are referenced by the name under which they are
+     * registered with the EntityManagerFactory.
+     */
+    static class FetchPlan {
+        final CriteriaQuery<Tuple> dataQuery;
+        final Set<String> counted;
+        final CriteriaQuery<Long> countQuery;
+        final Set<String> projection;
+
+        FetchPlan(CriteriaQuery<Tuple> dataQuery, Set<String> counted, CriteriaQuery<Long> countQuery, Set<String> projection) {
+            this.dataQuery = dataQuery;
+            this.counted = counted;
+            this.countQuery = countQuery;
+            this.projection = projection;
+        }
+    }
+
+    /*
+     * Describes the shape of a query, i.e. everything that determines the
+     * query's structure, along with the values to be bound to its parameters.
+     * Queries are built once for each shape and reused for later requests, only
+     * the arguments differ.
+     */
+    static class QueryShape {
+        final StringBuilder key;
+        final Map<String, Object> arguments = new HashMap<>();
+
+        QueryShape(String kind) {
+            this.key = new StringBuilder(kind);
+        }
+
+        QueryShape append(Object element) {
+            key.append('|').append(element);
+            return this;
+        }
+
+        QueryShape bind(String name, Object value) {
+            arguments.put(name, value);
+            return this;
         }
+
+        boolean isBound(String name) {
+            return arguments.containsKey(name);
+        }
+
+        Object getArgument(String name) {
+            return arguments.get(name);
+        }
+
+        String getKey() {
+            return key.toString();
+        }
+
+        <Q extends Query> Q bindTo(Q query) {
+            for (Parameter<?> parameter : query.getParameters()) {
+                // Values given directly to a criteria query are bound by the provider
+                if (parameter.getName() != null) {
+                    query.setParameter(parameter.getName(), arguments.get(parameter.getName()));
+                }
+            }
+            return query;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <P> P getPlan(EntityMeta meta, QueryShape shape, Supplier<P> factory) {
+        return (P) meta.getQueryPlans().computeIfAbsent(shape.getKey(), key -> factory.get());
+    }
+
+    /*
+     * Each shape's criteria query is built once and kept in the bounded plan
+     * cache of the entity type. A cached query is never modified after it is
+     * built, every request creates its own query from it (using any
+     * EntityManager of the factory) and binds only the shape's arguments.
+     * Nothing is registered with the EntityManagerFactory, a shape evicted
+     * from the plan cache releases its query.
+     */
+    <X> TypedQuery<X> createQuery(EntityMeta meta, QueryShape shape, Supplier<CriteriaQuery<X>> factory) {
+        return createQuery(em, meta, shape, factory);
+    }
+
+    <X> TypedQuery<X> createQuery(EntityManager manager, EntityMeta meta, QueryShape shape, Supplier<CriteriaQuery<X>> factory) {
+        final CriteriaQuery<X> query = getPlan(meta, shape, factory);
+        return shape.bindTo(manager.createQuery(query));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <Y> ParameterExpression<Y> parameter(CriteriaBuilder builder, Expression<Y> expression, String name) {
+        return builder.parameter((Class<Y>) EntityMeta.wrap(expression.getJavaType()), name);
     }
 
-    List<Order> getOrderBy(CriteriaBuilder builder, Root<Object> root, InternalQuery params) {
-        List<String> sortKeys = params.getSort();
+    List<Order> getOrderBy(CriteriaBuilder builder, Root<Object> root, EntityMeta meta, InternalQuery params) {
+        List<String> sortKeys = getSortKeys(meta, params);
 
         if (!sortKeys.isEmpty()) {
-            List<Order> orderBy = new ArrayList<>(params.getSort().size());
+            // Results for `page[before]` are selected in reverse and re-ordered after retrieval
+            final boolean reverse = params.getPageBefore() != null;
+            List<Order> orderBy = new ArrayList<>(sortKeys.size());
 
-            for (String sortKey : params.getSort()) {
+            for (String sortKey : sortKeys) {
                 boolean descending = sortKey.startsWith("-");
                 String attribute = sortKey.substring(descending ? 1 : 0);
                 Path<Object> path = root.get(attribute);
 
-                if (descending) {
+                if (params.isKeysetPaging() && isNullable(meta, attribute)) {
+                    /*
+                     * NULLs sort as the greatest values for keyset paging,
+                     * matching the range predicate regardless of the
+                     * database's default NULL ordering.
+                     */
+                    Expression<Integer> nullsFlag = builder.<Integer>selectCase()
+                                                           .when(builder.isNull(path), builder.literal(1))
+                                                           .otherwise(builder.literal(0));
+                    orderBy.add(descending != reverse ? builder.desc(nullsFlag) : builder.asc(nullsFlag));
+                }
+
+                if (descending != reverse) {
                     orderBy.add(builder.desc(path));
                 } else {
                     orderBy.add(builder.asc(path));
@@ -118,28 +299,220 @@ public class PersistenceController {
         return Collections.emptyList();
     }
 
+    static boolean isNullable(EntityMeta meta, String attributeName) {
+        if (meta.getExposedIdAttribute().getName().equals(attributeName)) {
+            return false;
+        }
+
+        Attribute<Object, ?> attribute = meta.getEntityType().getAttribute(attributeName);
+
+        return attribute instanceof SingularAttribute
+                && ((SingularAttribute<?, ?>) attribute).isOptional()
+                && !attribute.getJavaType().isPrimitive();
+    }
+
+    /*
+     * Keyset pagination requires a total ordering, the exposed identifier is
+     * appended to the requested sort keys as a tie-breaker.
+     */
+    List<String> getSortKeys(EntityMeta meta, InternalQuery params) {
+        if (!params.isKeysetPaging()) {
+            return params.getSort();
+        }
+
+        List<String> sortKeys = new ArrayList<>(params.getSort());
+        sortKeys.add(meta.getExposedIdAttribute().getName());
+        return sortKeys;
+    }
+
+    /*
+     * Add the values of the cursor to the shape. Which of the values are null
+     * is part of the shape since no parameter is used for a null value.
+     */
+    void describeKeyset(QueryShape shape, EntityMeta meta, InternalQuery params) {
+        final boolean before = params.getPageBefore() != null;
+        final JsonArray cursor = PageCursor.decode(before ? params.getPageBefore() : params.getPageAfter());
+
+        if (cursor.isEmpty()) {
+            return;
+        }
+
+        final List<String> sortKeys = getSortKeys(meta, params);
+        final int idIndex = sortKeys.size() - 1;
+        final StringBuilder nulls = new StringBuilder("keyset:");
+
+        for (int i = 0; i < sortKeys.size(); i++) {
+            String sortKey = sortKeys.get(i);
+            String attribute = sortKey.substring(sortKey.startsWith("-") ? 1 : 0);
+            Object value;
+
+            if (i == idIndex) {
+                value = meta.readId(cursor.getString(i));
+            } else {
+                value = reader.readValue(meta, attribute, cursor.get(i));
+            }
+
+            shape.bind(PARAM_KEY + i, value);
+            nulls.append(value != null ? '1' : '0');
+        }
+
+        shape.append(nulls);
+    }
+
+    /*
+     * Build the range predicate selecting the rows following (`page[after]`)
+     * or preceding (`page[before]`) the cursor position, e.g. for keys (a, b):
+     * `a > :a OR (a = :a AND b > :b)`. NULLs of optional attributes are
+     * greater than any value, consistent with the ordering of the query.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked", "java:S3740" })
+    Predicate buildKeysetPredicate(CriteriaBuilder builder,
+                                   Root<Object> root,
+                                   EntityMeta meta,
+                                   InternalQuery params,
+                                   QueryShape shape) {
+
+        if (!shape.isBound(PARAM_KEY + 0)) {
+            return null;
+        }
+
+        final boolean before = params.getPageBefore() != null;
+        final List<String> sortKeys = getSortKeys(meta, params);
+        final List<Predicate> equalities = new ArrayList<>(sortKeys.size());
+        final List<Predicate> disjuncts = new ArrayList<>(sortKeys.size());
+
+        for (int i = 0; i < sortKeys.size(); i++) {
+            String sortKey = sortKeys.get(i);
+            boolean descending = sortKey.startsWith("-");
+            String attribute = sortKey.substring(descending ? 1 : 0);
+            Path<Comparable> path = root.get(attribute);
+            Expression<Comparable> value;
+
+            if (shape.getArgument(PARAM_KEY + i) != null) {
+                value = parameter(builder, path, PARAM_KEY + i);
+            } else {
+                value = null;
+            }
+
+            final boolean greater = descending == before;
+            final boolean nullable = isNullable(meta, attribute);
+            final Predicate comparison;
+
+            if (value == null) {
+                // Only the non-null values are less than a null
+                comparison = greater || !nullable ? builder.disjunction() : builder.isNotNull(path);
+            } else if (greater) {
+                comparison = nullable
+                        ? builder.or(builder.greaterThan(path, value), builder.isNull(path))
+                        : builder.greaterThan(path, value);
+            } else {
+                comparison = builder.lessThan(path, value);
+            }
+
+            List<Predicate> terms = new ArrayList<>(equalities);
+            terms.add(comparison);
+            disjuncts.add(builder.and(terms.toArray(new Predicate[terms.size()])));
+            equalities.add(value != null ? builder.equal(path, value) : builder.isNull(path));
+        }
+
+        return builder.or(disjuncts.toArray(new Predicate[disjuncts.size()]));
+    }
+
+    String getCursor(InternalQuery params, Entity entity) {
+        JsonArrayBuilder values = Json.createArrayBuilder();
+
+        for (String sortKey : params.getSort()) {
+            String attribute = sortKey.substring(sortKey.startsWith("-") ? 1 : 0);
+            values.add(ResourceObjectWriter.toJsonValue(entity.getAttribute(attribute)));
+        }
+
+        values.add(entity.getStringId());
+
+        return PageCursor.encode(values.build());
+    }
+
+    /*
+     * Pagination links for keyset pagination. A `next` link is only given when
+     * the page is full, a `prev` link only when the request was itself
+     * positioned by a cursor.
+     */
+    JsonObject getPageLinks(InternalQuery params, int count, Entity first, Entity last) {
+        final boolean before = params.getPageBefore() != null;
+        final String current = before ? params.getPageBefore() : params.getPageAfter();
+        final boolean full = count >= params.getMaxResults();
+        final boolean positioned = !current.isEmpty();
+
+        JsonObjectBuilder links = Json.createObjectBuilder();
+
+        if (count > 0 && (before ? full : positioned)) {
+            links.add("prev", getPageLink(params, InternalQuery.PARAM_PAGE_BEFORE, getCursor(params, first)));
+        } else {
+            links.addNull("prev");
+        }
+
+        if (count > 0 && (before ? positioned : full)) {
+            links.add("next", getPageLink(params, InternalQuery.PARAM_PAGE_AFTER, getCursor(params, last)));
+        } else {
+            links.addNull("next");
+        }
+
+        return links.build();
+    }
+
+    /*
+     * Replace the cursor parameters of the request URI, retaining all others
+     * as given by the client.
+     */
+    String getPageLink(InternalQuery params, String cursorParam, String cursor) {
+        final String requestUri = params.getUriInfo().getRequestUri().toString();
+        final int queryStart = requestUri.indexOf('?');
+        final StringBuilder link = new StringBuilder(requestUri.length() + cursor.length());
+
+        if (queryStart < 0) {
+            link.append(requestUri).append('?');
+        } else {
+            link.append(requestUri, 0, queryStart + 1);
+
+            for (String param : requestUri.substring(queryStart + 1).split("&")) {
+                String name = URLDecoder.decode(param.split("=", 2)[0], StandardCharsets.UTF_8);
+
+                if (!InternalQuery.PARAM_PAGE_AFTER.equals(name) && !InternalQuery.PARAM_PAGE_BEFORE.equals(name)) {
+                    link.append(param).append('&');
+                }
+            }
+        }
+
+        return link.append(URLEncoder.encode(cursorParam, StandardCharsets.UTF_8))
+                   .append('=')
+                   .append(cursor)
+                   .toString();
+    }
+
     public JsonObject getRelationships(InternalContext context) {
 
         String resourceType = context.getResourceType();
         EntityMeta meta = model.getEntityMeta(resourceType);
-        Class<Object> entityClass = meta.getEntityClass();
-
-        final CriteriaBuilder builder = em.getCriteriaBuilder();
-        final CriteriaQuery<Object> query = builder.createQuery();
-
-        Root<Object> root = query.from(entityClass);
         String relationshipName = context.getRelationshipName();
-        Join<Object, Object> join = root.join(relationshipName);
-        EntityMeta joinMeta = model.getEntityMeta(join.getModel().getBindableJavaType());
+        EntityMeta joinMeta = model.getEntityMeta(meta.getRelatedEntityClass(relationshipName));
 
         final UriInfo uriInfo = context.getUriInfo();
         final String id = context.getResourceId();
 
-        query.select(join.get(joinMeta.getExposedIdAttribute()));
-        List<Predicate> predicates = buildPredicates(builder, root, context.getSecurity().getUserPrincipal(), meta, id);
-        query.where(predicates.toArray(new Predicate[predicates.size()]));
+        final QueryShape shape = new QueryShape("relationships").append(relationshipName);
+        describePredicates(shape, context.getSecurity().getUserPrincipal(), meta, id);
 
-        TypedQuery<Object> typedQuery = em.createQuery(query);
+        final TypedQuery<Object> typedQuery = readOnly(createQuery(meta, shape, () -> {
+            final CriteriaBuilder builder = em.getCriteriaBuilder();
+            final CriteriaQuery<Object> relationshipQuery = builder.createQuery();
+
+            Root<Object> root = relationshipQuery.from(meta.getEntityClass());
+            Join<Object, Object> join = root.join(relationshipName);
+
+            relationshipQuery.select(join.get(joinMeta.getExposedIdAttribute()));
+            List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+            relationshipQuery.where(predicates.toArray(new Predicate[predicates.size()]));
+            return relationshipQuery;
+        }));
 
         return writer.toJsonApiRelationships(uriInfo,
                                              resourceType,
@@ -157,6 +530,37 @@ public class PersistenceController {
         return groupsAttribute instanceof Class[] ? (Class<?>[]) groupsAttribute : new Class<?>[0];
     }
 
+    /*
+     * Validate the entity in the transaction selected by the validation mode
+     * of the resource type. Only the variants of the validator annotated with
+     * `REQUIRES_NEW` suspend the transaction of the request.
+     */
+    <T> Set<ConstraintViolation<?>> validate(InternalContext context, EntityMeta meta, T entity) {
+        final String method = context.getRequest().getMethod();
+        final Class<?>[] groups = getValidationGroups(context);
+
+        if (validator.requiresNewTransaction(meta.getValidationMode(), meta.getEntityClass())) {
+            return Collections.unmodifiableSet(validator.validate(method, entity, groups));
+        }
+
+        return Collections.unmodifiableSet(validator.validateInCallerTransaction(method, entity, groups));
+    }
+
+    /*
+     * Validate the values of entity properties in the transaction selected by
+     * the validation mode of the resource type.
+     */
+    Set<ConstraintViolation<?>> validateValues(InternalContext context, EntityMeta meta, Map<String, Object> values) {
+        final String method = context.getRequest().getMethod();
+        final Class<?>[] groups = getValidationGroups(context);
+
+        if (validator.requiresNewTransaction(meta.getValidationMode(), meta.getEntityClass())) {
+            return Collections.unmodifiableSet(validator.validateValues(method, meta.getEntityClass(), values, groups));
+        }
+
+        return Collections.unmodifiableSet(validator.validateValuesInCallerTransaction(method, meta.getEntityClass(), values, groups));
+    }
+
     @SuppressWarnings("unchecked")
     public <T> JsonObject create(InternalContext context, JsonApiHandler<T> handler) {
         JsonObject input = context.getRequestEntity();
@@ -169,7 +573,10 @@ public class PersistenceController {
 
         try {
             entity = (T) entityClass.getConstructor().newInstance();
-            em.setFlushMode(FlushModeType.COMMIT);
+
+            if (!flushDeferred) {
+                em.setFlushMode(FlushModeType.COMMIT);
+            }
         } catch (Exception e) {
             throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", e.getMessage());
         }
@@ -177,10 +584,7 @@ public class PersistenceController {
         reader.fromJson(this, context, entity, input);
         handler.afterUpdate(context, entity);
 
-        Class<?>[] validationGroups = getValidationGroups(context);
-        Set<ConstraintViolation<?>> violations = Collections.unmodifiableSet(validator.validate(context.getRequest().getMethod(),
-                                                                                                entity,
-                                                                                                validationGroups));
+        Set<ConstraintViolation<?>> violations = validate(context, meta, entity);
         handler.afterValidation(context, violations);
 
         if (!violations.isEmpty()) {
@@ -190,7 +594,8 @@ public class PersistenceController {
         handler.beforePersist(context, entity);
 
         em.persist(entity);
-        em.flush();
+        flushUnlessDeferred(entity);
+        invalidateCaches(meta);
 
         handler.afterPersist(context, entity);
 
@@ -206,20 +611,25 @@ public class PersistenceController {
         final JsonObject input = context.getRequestEntity();
         final UriInfo uriInfo = context.getUriInfo();
 
+        final Object matchedVersion = evaluatePreconditions(context, meta, id);
+
+        if (isUpdateWithoutLoad(context, meta, handler)) {
+            return updateWithoutLoad(context, handler, meta, matchedVersion);
+        }
+
         final T entity = findObject(context, resourceType, id);
 
         if (entity == null) {
             return null;
         }
 
+        verifyVersion(meta, entity, matchedVersion);
+
         handler.beforeUpdate(context, entity);
         reader.fromJson(this, context, entity, input);
         handler.afterUpdate(context, entity);
 
-        Class<?>[] validationGroups = getValidationGroups(context);
-        Set<ConstraintViolation<?>> violations = Collections.unmodifiableSet(validator.validate(context.getRequest().getMethod(),
-                                                                                                entity,
-                                                                                                validationGroups));
+        Set<ConstraintViolation<?>> violations = validate(context, meta, entity);
         handler.afterValidation(context, violations);
 
         if (!violations.isEmpty()) {
@@ -230,312 +640,1592 @@ public class PersistenceController {
         handler.beforeMerge(context, entity);
 
         final Object updatedEntity = em.merge(entity);
-        em.flush();
+
+        try {
+            flushUnlessDeferred(updatedEntity);
+        } catch (OptimisticLockException e) {
+            throw preconditionFailed();
+        }
+
+        invalidateCaches(meta);
+
+        if (meta.isVersionEntityTags()) {
+            context.setEntityTag(toVersionTag(meta.getPropertyValue(updatedEntity, meta.getVersionAttribute().getName())));
+        }
 
         handler.afterMerge(context, entity);
 
         return writer.toJsonApiResource(new Entity(meta, updatedEntity), uriInfo);
     }
 
+    boolean isUpdateWithoutLoad(InternalContext context, EntityMeta meta, JsonApiHandler<?> handler) {
+        if (!meta.isUpdateWithoutLoad() || flushDeferred || context.getRelationshipName() != null) {
+            return false;
+        }
+
+        final SingularAttribute<Object, ?> version = meta.getVersionAttribute();
+
+        if (version != null && !Number.class.isAssignableFrom(EntityMeta.wrap(version.getJavaType()))) {
+            // Only a numeric version may be incremented by the statement
+            return false;
+        }
+
+        final String namePath = meta.getPrincipalNamePath();
+
+        if (namePath != null && namePath.indexOf('.') > -1 && context.getSecurity().getUserPrincipal() != null) {
+            // The root of an UPDATE statement may not be joined to the principal
+            return false;
+        }
+
+        final JsonObject data = context.getRequestEntity().getJsonObject("data");
+        final JsonValue relationships = data.get("relationships");
+        final JsonValue attributes = data.get("attributes");
+
+        return (relationships == null || relationships.asJsonObject().isEmpty())
+                && attributes instanceof JsonObject
+                && !attributes.asJsonObject().isEmpty()
+                && attributes.asJsonObject().keySet().stream().allMatch(meta::isUpdatable)
+                && !JsonApiHandlerChain.hasEntityUpdateHooks(handler);
+    }
+
+    /*
+     * Apply the attributes of the request with a single UPDATE statement
+     * limited to the given attributes, the resource's identifier, the user
+     * principal and (when matched by `If-Match`) the resource's version. Each
+     * attribute is validated individually. The (numeric) version attribute is
+     * incremented by the statement. Returns an empty object when the resource
+     * was updated, null when it was not found.
+     */
+    <T> JsonObject updateWithoutLoad(InternalContext context, JsonApiHandler<T> handler, EntityMeta meta, Object matchedVersion) {
+        final JsonObject attributes = context.getRequestEntity().getJsonObject("data").getJsonObject("attributes");
+        final Map<String, Object> values = new LinkedHashMap<>(attributes.size());
+
+        attributes.forEach((name, value) -> values.put(name, reader.readValue(meta, name, value)));
+
+        Set<ConstraintViolation<?>> violations = validateValues(context, meta, values);
+        handler.afterValidation(context, violations);
+
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        final QueryShape shape = new QueryShape("update");
+        describePredicates(shape, context.getSecurity().getUserPrincipal(), meta, context.getResourceId());
+
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaUpdate<Object> update = builder.createCriteriaUpdate(meta.getEntityClass());
+        final Root<Object> root = update.from(meta.getEntityClass());
+        final List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+        final SingularAttribute<Object, ?> version = meta.getVersionAttribute();
+
+        values.forEach((name, value) -> update.set(root.get(name), value));
+
+        if (version != null) {
+            final Path<Number> versionPath = root.get(version.getName());
+            update.set(versionPath, builder.sum(versionPath, 1));
+        }
+
+        if (matchedVersion != null) {
+            predicates.add(builder.equal(root.get(version.getName()), matchedVersion));
+        }
+
+        update.where(predicates.toArray(new Predicate[predicates.size()]));
+
+        final int count;
+
+        try {
+            count = shape.bindTo(em.createQuery(update)).executeUpdate();
+        } catch (PersistenceException e) {
+            throw new JsonApiErrorException(Status.CONFLICT, "Unexpected error", e.getMessage());
+        }
+
+        if (count == 0) {
+            if (matchedVersion != null) {
+                // Modified by another transaction after the version was matched
+                throw preconditionFailed();
+            }
+            return null;
+        }
+
+        invalidateCaches(meta);
+
+        return JsonValue.EMPTY_JSON_OBJECT;
+    }
+
+    /*
+     * Replace (PATCH), add to (POST) or remove from (DELETE) the members of a
+     * single relationship of the resource. To-many relationships mapped by a
+     * to-one attribute of the related type are updated using bulk statements
+     * against the related type's foreign key, touching only the rows of the
+     * members added or removed and without loading the relationship's current
+     * members. Other relationships, including the owning side of a
+     * many-to-many relationship (whose join table may not be the target of a
+     * JPA bulk statement), and relationships updated within an atomic
+     * operations request (where the flush is deferred to the end of the
+     * request), are updated through the entity as with a PATCH of the
+     * resource.
+     *
+     * Bulk statements bypass the persistence context. Pending changes are
+     * flushed before the statements are executed and the resource is refreshed
+     * before `afterUpdate` is called, related entities already managed by the
+     * EntityManager are not refreshed. The related type is evicted from the
+     * second-level cache, if any.
+     */
+    public <T> JsonObject updateRelationship(InternalContext context, JsonApiHandler<T> handler) {
+        final String resourceType = context.getResourceType();
+        final EntityMeta meta = model.getEntityMeta(resourceType);
+        final String relationshipName = context.getRelationshipName();
+        final Attribute<Object, ?> attribute = meta.getEntityType().getAttribute(relationshipName);
+
+        if (!attribute.isCollection() && !HttpMethod.PATCH.equals(context.getRequest().getMethod())) {
+            throw new JsonApiErrorException(Status.FORBIDDEN,
+                                            "Forbidden",
+                                            "Members may only be added to or removed from a to-many relationship");
+        }
+
+        final EntityMeta relatedMeta = model.getEntityMeta(meta.getRelatedEntityClass(relationshipName));
+
+        if (flushDeferred || !isBulkUpdatable(attribute, relatedMeta)) {
+            return update(context, handler) != null ? JsonValue.EMPTY_JSON_OBJECT : null;
+        }
+
+        final String id = context.getResourceId();
+        final Object matchedVersion = evaluatePreconditions(context, meta, id);
+        final T entity = findObject(context, resourceType, id);
+
+        if (entity == null) {
+            return null;
+        }
+
+        verifyVersion(meta, entity, matchedVersion);
+
+        handler.beforeUpdate(context, entity);
+
+        final String inverseName = inverseOf(meta.getEntityClass(), attribute).getName();
+        final Collection<Object> members = findMemberIds(context, relatedMeta, relationshipName);
+
+        try {
+            em.flush();
+
+            switch (context.getRequest().getMethod()) {
+            case HttpMethod.POST:
+                setInverse(relatedMeta, inverseName, entity, members);
+                break;
+            case HttpMethod.DELETE:
+                clearInverse(relatedMeta, inverseName, entity, members);
+                break;
+            default:
+                replaceInverse(relatedMeta, inverseName, entity, members);
+                break;
+            }
+
+            em.getEntityManagerFactory().getCache().evict(relatedMeta.getEntityClass());
+            em.refresh(entity);
+        } catch (OptimisticLockException e) {
+            throw preconditionFailed();
+        } catch (PersistenceException e) {
+            throw new JsonApiErrorException(Status.CONFLICT, "Unexpected error", e.getMessage());
+        }
+
+        invalidateCaches(meta);
+        invalidateCaches(relatedMeta);
+
+        handler.afterUpdate(context, entity);
+
+        return JsonValue.EMPTY_JSON_OBJECT;
+    }
+
+    /*
+     * A to-many relationship may be updated in bulk when it is the inverse side
+     * of a to-one attribute of the related type (i.e. the related type holds the
+     * foreign key) and the related type's version, if any, can be incremented by
+     * the statement.
+     */
+    boolean isBulkUpdatable(Attribute<Object, ?> attribute, EntityMeta relatedMeta) {
+        if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.ONE_TO_MANY
+                || getMappedBy(attribute).isEmpty()) {
+            return false;
+        }
+
+        final SingularAttribute<Object, ?> version = relatedMeta.getVersionAttribute();
+
+        return version == null || Number.class.isAssignableFrom(EntityMeta.wrap(version.getJavaType()));
+    }
+
+    /*
+     * Identifier values of the resources given as the relationship's linkage in
+     * the request. Only the identifiers are selected, the resources are not
+     * loaded. Any resource not found (or not visible to the user) results in
+     * the same error as a relationship update through the entity.
+     */
+    Collection<Object> findMemberIds(InternalContext context, EntityMeta relatedMeta, String relationshipName) {
+        final JsonArray linkage = context.getRequestEntity()
+                                         .getJsonObject("data")
+                                         .getJsonObject("relationships")
+                                         .getJsonObject(relationshipName)
+                                         .getJsonArray("data");
+
+        final Set<String> requested = linkage.stream()
+                                             .map(JsonValue::asJsonObject)
+                                             .map(identifier -> identifier.getString("id"))
+                                             .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        final Map<String, Object> found = findIds(context, relatedMeta, requested);
+        final JsonArrayBuilder errors = Json.createArrayBuilder();
+
+        for (String id : requested) {
+            if (!found.containsKey(id)) {
+                errors.add(ResourceObjectReader.relationshipNotFound(relationshipName, relatedMeta.getResourceType(), id));
+            }
+        }
+
+        JsonArray errorsArray = errors.build();
+
+        if (!errorsArray.isEmpty()) {
+            throw new JsonApiErrorException(JsonApiStatus.UNPROCESSABLE_ENTITY, errorsArray);
+        }
+
+        return found.values();
+    }
+
+    /*
+     * Select the exposed identifier values of the resources identified by the
+     * given identifiers, keyed by the requested identifier. Identifiers left
+     * unmatched are found individually only when not in their canonical form,
+     * as with `findObjects`.
+     */
+    Map<String, Object> findIds(InternalContext context, EntityMeta meta, Collection<String> ids) {
+        final QueryShape shape = new QueryShape("identify");
+
+        return findByIds(context, meta, ids, shape, Function.identity(), () -> createQuery(meta, shape, () -> {
+            final CriteriaBuilder builder = em.getCriteriaBuilder();
+            final CriteriaQuery<Object> query = builder.createQuery();
+            final Root<Object> root = query.from(meta.getEntityClass());
+            final Path<?> exposedId = root.get(meta.getExposedIdAttribute());
+            final List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+
+            predicates.add(exposedId.in(idsParameter(builder)));
+
+            return query.select(exposedId).where(predicates.toArray(new Predicate[predicates.size()]));
+        }), id -> {
+            Object entity = findObject(context, meta.getResourceType(), id);
+            return entity != null ? meta.getExposedIdValue(entity) : null;
+        });
+    }
+
+    void replaceInverse(EntityMeta relatedMeta, String inverseName, Object entity, Collection<Object> members) {
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<Object> query = builder.createQuery();
+        final Root<Object> root = query.from(relatedMeta.getEntityClass());
+        final Path<Object> exposedId = root.get(relatedMeta.getExposedIdAttribute().getName());
+
+        query.select(exposedId).where(builder.equal(root.get(inverseName), entity));
+
+        final Set<Object> current = new HashSet<>(em.createQuery(query).getResultList());
+        final Set<Object> removed = new HashSet<>(current);
+        final Set<Object> added = new LinkedHashSet<>(members);
+
+        removed.removeAll(members);
+        added.removeAll(current);
+
+        clearInverse(relatedMeta, inverseName, entity, removed);
+        setInverse(relatedMeta, inverseName, entity, added);
+    }
+
+    void setInverse(EntityMeta relatedMeta, String inverseName, Object entity, Collection<Object> members) {
+        for (List<Object> chunk : chunkIds(members)) {
+            final CriteriaBuilder builder = em.getCriteriaBuilder();
+            final CriteriaUpdate<Object> update = builder.createCriteriaUpdate(relatedMeta.getEntityClass());
+            final Root<Object> root = update.from(relatedMeta.getEntityClass());
+            final Path<Object> inverse = root.get(inverseName);
+
+            update.set(inverse, entity)
+                  .where(root.get(relatedMeta.getExposedIdAttribute()).in(chunk),
+                         builder.or(builder.isNull(inverse), builder.notEqual(inverse, entity)));
+
+            executeUpdate(relatedMeta, builder, update, root);
+        }
+    }
+
+    void clearInverse(EntityMeta relatedMeta, String inverseName, Object entity, Collection<Object> members) {
+        for (List<Object> chunk : chunkIds(members)) {
+            final CriteriaBuilder builder = em.getCriteriaBuilder();
+            final CriteriaUpdate<Object> update = builder.createCriteriaUpdate(relatedMeta.getEntityClass());
+            final Root<Object> root = update.from(relatedMeta.getEntityClass());
+            final Path<Object> inverse = root.get(inverseName);
+
+            update.set(inverse, (Object) null)
+                  .where(root.get(relatedMeta.getExposedIdAttribute()).in(chunk),
+                         builder.equal(inverse, entity));
+
+            executeUpdate(relatedMeta, builder, update, root);
+        }
+    }
+
+    void executeUpdate(EntityMeta meta, CriteriaBuilder builder, CriteriaUpdate<Object> update, Root<Object> root) {
+        final SingularAttribute<Object, ?> version = meta.getVersionAttribute();
+
+        if (version != null) {
+            final Path<Number> versionPath = root.get(version.getName());
+            update.set(versionPath, builder.sum(versionPath, 1));
+        }
+
+        em.createQuery(update).executeUpdate();
+    }
+
     public <T> boolean delete(InternalContext context, JsonApiHandler<T> handler) {
         String resourceType = context.getResourceType();
         String id = context.getResourceId();
+        EntityMeta meta = model.getEntityMeta(resourceType);
 
+        final Object matchedVersion = evaluatePreconditions(context, meta, id);
         final T entity = findObject(context, resourceType, id);
 
         if (entity == null) {
             return false;
         }
 
+        verifyVersion(meta, entity, matchedVersion);
         handler.beforeDelete(context, entity);
 
         try {
             em.remove(entity);
-            em.flush();
+            flushUnlessDeferred(entity);
+            invalidateCaches(meta);
             handler.afterDelete(context, entity);
             return true;
+        } catch (OptimisticLockException e) {
+            throw preconditionFailed();
         } catch (PersistenceException e) {
             throw new JsonApiErrorException(Status.CONFLICT, "Unexpected error", e.getMessage());
         }
     }
 
-    static <T> List<Predicate> buildPredicates(CriteriaBuilder builder,
-                                               Root<T> root,
-                                               Principal user,
-                                               EntityMeta meta,
-                                               String id) {
-        List<Predicate> predicates = new ArrayList<>(2);
+    /*
+     * Defer flushing the changes of create, update and delete until `flush` is
+     * called, so that the statements of several operations are sent together
+     * (and may be batched by the JPA provider). Queries issued in the meantime
+     * still observe the pending changes through the AUTO flush mode. The
+     * invalidation of cached results is deferred along with the changes.
+     */
+    public void deferFlush() {
+        flushDeferred = true;
+    }
+
+    /*
+     * Set the index of the operation whose changes are deferred next, used to
+     * identify the operation responsible for a failure of the deferred flush.
+     */
+    public void setDeferredOperation(int index) {
+        deferredOperation = index;
+    }
+
+    /*
+     * Flush the deferred changes and invalidate the cached results of the
+     * types affected once the changes have been sent to the database.
+     */
+    public void flush() {
+        flushDeferred = false;
+
+        try {
+            em.flush();
+        } catch (OptimisticLockException e) {
+            throw new JsonApiErrorException(Status.PRECONDITION_FAILED,
+                                            "Precondition Failed",
+                                            "The resource has been modified",
+                                            e);
+        } catch (PersistenceException e) {
+            throw new JsonApiErrorException(Status.CONFLICT, "Unexpected error", e.getMessage(), e);
+        }
+
+        final Set<EntityMeta> invalidated = new HashSet<>(deferredInvalidations);
+        endDeferredFlush();
+        invalidated.forEach(this::invalidateCaches);
+    }
+
+    /*
+     * Stop deferring changes, discarding the state of any deferred flush not
+     * completed (e.g. when an operation failed and the transaction will be
+     * rolled back).
+     */
+    public void endDeferredFlush() {
+        flushDeferred = false;
+        deferredOperation = 0;
+        deferredWrites.clear();
+        deferredInvalidations.clear();
+    }
+
+    /*
+     * Find the index of the operation that wrote the entity rejected by a
+     * failed flush, or -1 when the failure does not identify an entity written
+     * by a deferred operation.
+     */
+    public int getDeferredOperation(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException) {
+                Object entity = ((OptimisticLockException) cause).getEntity();
+
+                if (entity != null && deferredWrites.containsKey(entity)) {
+                    return deferredWrites.get(entity);
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    void flushUnlessDeferred(Object entity) {
+        if (flushDeferred) {
+            deferredWrites.putIfAbsent(entity, deferredOperation);
+        } else {
+            em.flush();
+        }
+    }
+
+    static String predicateKind(String value) {
+        if ("null".equals(value) || "!null".equals(value)) {
+            return value;
+        }
+        return "=";
+    }
+
+    static void describePredicates(QueryShape shape, Principal user, EntityMeta meta, String id) {
+        final String namePath = meta.getPrincipalNamePath();
+
+        if (user != null && namePath != null && !namePath.isEmpty()) {
+            shape.append(PARAM_PRINCIPAL + predicateKind(user.getName())).bind(PARAM_PRINCIPAL, user.getName());
+        }
+
+        if (id != null) {
+            shape.append(PARAM_ID).bind(PARAM_ID, meta.readId(id));
+        }
+    }
+
+    static <T> List<Predicate> buildPredicates(CriteriaBuilder builder,
+                                               Root<T> root,
+                                               EntityMeta meta,
+                                               QueryShape shape) {
+        List<Predicate> predicates = new ArrayList<>(2);
+
+        if (shape.isBound(PARAM_PRINCIPAL)) {
+            String namePath = meta.getPrincipalNamePath();
+            String userName = (String) shape.getArgument(PARAM_PRINCIPAL);
+            predicates.add(buildPredicate(builder, root, namePath, userName, PARAM_PRINCIPAL));
+        }
+
+        if (shape.isBound(PARAM_ID)) {
+            final Path<?> idPath = root.get(meta.getExposedIdAttribute());
+            predicates.add(builder.equal(idPath, parameter(builder, idPath, PARAM_ID)));
+        }
+
+        return predicates;
+    }
+
+    static <T> Predicate buildPredicate(CriteriaBuilder builder,
+                                        Root<T> root,
+                                        String path,
+                                        String value,
+                                        String parameterName) {
+        Predicate p = null;
+
+        if (path != null && path.length() > 0) {
+            String[] elements = path.split("\\.");
+            From<?, ?> namePath = root;
+
+            for (int i = 0; i < elements.length; i++) {
+                if (i + 1 == elements.length) {
+                    final Path<Object> attribute = namePath.get(elements[i]);
+
+                    if ("null".equals(value)) {
+                        p = builder.isNull(attribute);
+                    } else if ("!null".equals(value)) {
+                        p = builder.isNotNull(attribute);
+                    } else {
+                        p = builder.equal(attribute, parameter(builder, attribute, parameterName));
+                    }
+                } else {
+                    namePath = join(namePath, elements[i]);
+                }
+            }
+        }
+
+        return p;
+    }
+
+    @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
+    static <Z, X> Join<X, ?> join(From<Z, X> from, String attribute) {
+        final String relationship;
+        final JoinType joinType;
+
+        if (attribute.startsWith("+")) {
+            // Left JOIN
+            relationship = attribute.substring(1);
+            joinType = JoinType.LEFT;
+        } else {
+            relationship = attribute;
+            joinType = JoinType.INNER;
+        }
+
+        final String targetAliasName = ALIAS_PRE + relationship;
+
+        return from.getJoins()
+                   .stream()
+                   .filter(j -> targetAliasName.equals(j.getAlias()))
+                   .findFirst()
+                   .orElseGet(() -> newJoin(from, relationship, joinType));
+    }
+
+    @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
+    static <Z, X> Join<X, ?> newJoin(From<Z, X> from, String attribute, JoinType joinType) {
+        Join<X, ?> joined = from.join(attribute, joinType);
+        joined.alias(ALIAS_PRE + attribute);
+        return joined;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T findObject(InternalContext context, String resourceType, String id) {
+        final EntityMeta meta = model.getEntityMeta(resourceType);
+        final QueryShape shape = new QueryShape("find");
+        describePredicates(shape, context.getSecurity().getUserPrincipal(), meta, id);
+
+        final T entity;
+
+        try {
+            TypedQuery<T> q = createQuery(meta, shape, () -> createFindQuery(meta, shape));
+            q.setHint("javax.persistence.fetchgraph", createFetchGraph(meta));
+
+            if (HttpMethod.GET.equals(context.getRequest().getMethod())) {
+                readOnly(q);
+            }
+
+            entity = q.getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        } catch (Exception e) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", e.getMessage());
+        }
+
+        return entity;
+    }
+
+    /*
+     * Find the resources of a single type identified by the given exposed
+     * identifiers, using one IN-list query for each chunk of identifiers rather
+     * than one query per identifier. Identifiers of resources that do not exist
+     * (or are not visible to the user) are absent from the result.
+     *
+     * Results are matched to the requested identifiers by the value read by
+     * the type's identifier reader or else by the identifier's string form (as
+     * written in responses). An identifier left unmatched is found individually
+     * only when it is not in its canonical form (e.g. a numeric identifier with
+     * leading zeros), otherwise the resource does not exist.
+     */
+    public <T> Map<String, T> findObjects(InternalContext context, String resourceType, Collection<String> ids) {
+        final EntityMeta meta = model.getEntityMeta(resourceType);
+        final QueryShape shape = new QueryShape("find").append(PARAM_IDS);
+
+        return findByIds(context, meta, ids, shape, meta::getExposedIdValue, () -> {
+            TypedQuery<T> q = createQuery(meta, shape, () -> createFindQuery(meta, shape));
+            q.setHint("javax.persistence.fetchgraph", createFetchGraph(meta));
+            return q;
+        }, id -> findObject(context, resourceType, id));
+    }
+
+    /*
+     * Run the query for each chunk of the given exposed identifiers, bound to
+     * the shape's IN-list parameter, and match each result to the requested
+     * identifiers by its exposed identifier value. Identifiers left unmatched
+     * and not in their canonical form are looked up individually.
+     */
+    <R> Map<String, R> findByIds(InternalContext context,
+                                 EntityMeta meta,
+                                 Collection<String> ids,
+                                 QueryShape shape,
+                                 Function<R, Object> exposedId,
+                                 Supplier<TypedQuery<R>> query,
+                                 Function<String, R> findIndividually) {
+        final Map<Object, List<String>> requested = new HashMap<>(ids.size());
+        final Map<String, R> results = new HashMap<>(ids.size());
+
+        ids.forEach(id -> requested.computeIfAbsent(meta.readId(id), k -> new ArrayList<>(1)).add(id));
+        describePredicates(shape, context.getSecurity().getUserPrincipal(), meta, null);
+
+        try {
+            for (List<Object> chunk : chunkIds(requested.keySet())) {
+                shape.bind(PARAM_IDS, chunk);
+
+                for (R result : query.get().getResultList()) {
+                    Object value = exposedId.apply(result);
+                    requested.getOrDefault(value, List.of(String.valueOf(value))).forEach(id -> results.put(id, result));
+                }
+            }
+        } catch (Exception e) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", e.getMessage());
+        }
+
+        for (String id : ids) {
+            if (!results.containsKey(id) && !id.equals(String.valueOf(meta.readId(id)))) {
+                R result = findIndividually.apply(id);
+
+                if (result != null) {
+                    results.put(id, result);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /*
+     * Entity graphs belong to the EntityManager that created them, only the
+     * attribute nodes of the graph are kept with the entity type.
+     */
+    @SuppressWarnings("unchecked")
+    <T> EntityGraph<T> createFetchGraph(EntityMeta meta) {
+        EntityGraph<T> graph = em.createEntityGraph((Class<T>) meta.getEntityClass());
+        graph.addAttributeNodes((Attribute<T, ?>[]) (Attribute<?, ?>[]) meta.getFetchedAttributes());
+        return graph;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> CriteriaQuery<T> createFindQuery(EntityMeta meta, QueryShape shape) {
+        Class<T> entityClass = (Class<T>) meta.getEntityClass();
+        final CriteriaBuilder builder = em.getCriteriaBuilder();
+        final CriteriaQuery<T> query = (CriteriaQuery<T>) builder.createQuery();
+        Root<T> root = query.from(entityClass);
+        query.select(root.alias("root"));
+
+        List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+
+        if (shape.isBound(PARAM_IDS)) {
+            predicates.add(root.get(meta.getExposedIdAttribute()).in(idsParameter(builder)));
+        }
+
+        if (!predicates.isEmpty()) {
+            query.where(predicates.toArray(new Predicate[predicates.size()]));
+        }
+
+        return query;
+    }
+
+    public <T> JsonObject fetch(InternalContext context, JsonApiHandler<T> handler) {
+        final InternalQuery params = context.getQuery();
+        final EntityMeta meta;
+        final EntityMeta relatedMeta;
+        final String relationshipName = context.getRelationshipName();
+
+        if (relationshipName != null) {
+            meta = model.getEntityMeta(params.getEntityMeta().getRelatedEntityClass(relationshipName));
+            relatedMeta = params.getEntityMeta();
+        } else {
+            meta = params.getEntityMeta();
+            relatedMeta = null;
+        }
+
+        final ExpiringCache<String, JsonObject> cache = getResponseCache(context, meta, relatedMeta, handler);
+        final String cacheKey = cache != null ? getCacheKey(context, meta) : null;
+
+        if (cacheKey != null) {
+            final JsonObject cached = cache.get(cacheKey);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final FetchQueries queries = buildQueries(context, meta, relatedMeta);
+
+        final List<Entity> results = queries.dataQuery.getResultList()
+                                                      .stream()
+                                                      .map(result -> toEntity(meta, queries, result))
+                                                      .collect(Collectors.toCollection(ArrayList::new));
+
+        if (params.getPageBefore() != null) {
+            // Rows preceding the cursor are selected in reverse order
+            Collections.reverse(results);
+        }
+
+        // Counted (when not known from the page) alongside the relationship counts and included resources
+        final CompletableFuture<Long> pendingTotal = getTotalResults(context, meta, queries, results.size());
+
+        /*
+         * Build empty map to hold relationships based on those requested by the
+         * client.
+         **/
+        final Map<Object, Map<String, List<Entity>>> relationships = initializeRelationships(results, meta);
+        final Map<Object, Map<String, Long>> counts;
+
+        /* Only retrieve included records and relationship counts if something was found. */
+        if (!results.isEmpty()) {
+            final Set<Object> ids = Set.copyOf(relationships.keySet());
+            final CompletableFuture<Map<Object, Map<String, Long>>> pendingCounts = countRelationships(meta, queries, ids);
+            getIncluded(meta, params, relationships);
+            counts = join(pendingCounts);
+        } else {
+            counts = Collections.emptyMap();
+        }
+
+        JsonArrayBuilder data = Json.createArrayBuilder();
+        JsonValue dataEntry = null;
+
+        for (Entity result : results) {
+            dataEntry = toJson(params, relationships, counts, result);
+            data.add(dataEntry);
+        }
+
+        if (notFoundPrimaryResource(dataEntry, relatedMeta, relationshipName, params)) {
+            // 404 Not Found for primary (non-relationship) resources
+            handler.afterFind(context, null);
+            return null;
+        }
+
+        JsonObjectBuilder response = writer.topLevelBuilder();
+        final Long totalResults = join(pendingTotal);
+
+        if (totalResults != null) {
+            response.add("meta", Json.createObjectBuilder().add("totalResults", totalResults));
+        }
+
+        if (params.isKeysetPaging()) {
+            Entity first = results.isEmpty() ? null : results.get(0);
+            Entity last = results.isEmpty() ? null : results.get(results.size() - 1);
+            response.add("links", getPageLinks(params, results.size(), first, last));
+        }
+
+        if (isSingular(relatedMeta, relationshipName, params)) {
+            if (dataEntry == null) {
+                handler.afterFind(context, null);
+                dataEntry = JsonValue.NULL;
+            } else {
+                @SuppressWarnings("unchecked")
+                T resultEntity = (T) results.get(0).getInstance();
+                handler.afterFind(context, resultEntity);
+            }
+
+            response.add("data", dataEntry);
+        } else {
+            response.add("data", data);
+        }
+
+        // Get unique set of included objects, excluding any given as primary data
+        final Set<Entity> included = distinctRelated(relationships);
+        included.removeAll(results);
+
+        if (!included.isEmpty()) {
+            response.add("included", mapIncludedToJson(params, included));
+        }
+
+        release(results);
+        release(included);
+
+        final JsonObject document = response.build();
+
+        if (cacheKey != null) {
+            cache.put(cacheKey, document);
+        }
+
+        return document;
+    }
+
+    /*
+     * Single resources are cached by the type's resource cache, collections by
+     * its response cache. Related resources are not cached, nor are single
+     * resources when the handler must see the entity found.
+     */
+    static ExpiringCache<String, JsonObject> getResponseCache(InternalContext context,
+                                                              EntityMeta meta,
+                                                              EntityMeta relatedMeta,
+                                                              JsonApiHandler<?> handler) {
+        if (relatedMeta != null) {
+            return null;
+        }
+        if (context.getResourceId() != null) {
+            return JsonApiHandlerChain.hasFindHooks(handler) ? null : meta.getResourceCache();
+        }
+        return meta.getResponseCache();
+    }
+
+    String getCacheKey(InternalContext context, EntityMeta meta) {
+        if (context.getResourceId() != null) {
+            return getResourceCacheKey(context, meta);
+        }
+        return getResponseCacheKey(context);
+    }
+
+    /*
+     * Key of a collection response in the type's response cache, made up of the
+     * user principal, the base URI (used by the links) and the query parameters
+     * ordered by name.
+     */
+    static String getResponseCacheKey(InternalContext context) {
+        final UriInfo uriInfo = context.getUriInfo();
+        final Principal user = context.getSecurity().getUserPrincipal();
+
+        return String.join("\n",
+                           context.getResourceType(),
+                           user != null ? user.getName() : "",
+                           uriInfo.getBaseUri().toString(),
+                           new TreeMap<>(uriInfo.getQueryParameters()).toString());
+    }
+
+    /*
+     * Key of a single resource read in the type's resource cache, made up of
+     * the user principal, the base URI (used by the links), the resource's
+     * identifier, its version (when versioned) and the query parameters that
+     * determine the content of the response. The version query
+     * uses the same predicates as the full read so that the resource is only
+     * served from the cache when it exists and is visible to the user. Null
+     * when the response may not be cached or the resource was not found.
+     */
+    String getResourceCacheKey(InternalContext context, EntityMeta meta) {
+        final InternalQuery params = context.getQuery();
+        final String id = context.getResourceId();
+
+        if (meta.getResourceCache() == null || id == null || !params.getFilters().isEmpty()) {
+            return null;
+        }
+
+        final List<Object> versions = findVersion(context, meta, id);
+
+        if (versions.isEmpty()) {
+            return null;
+        }
+
+        final Principal user = context.getSecurity().getUserPrincipal();
+        final StringBuilder key = new StringBuilder();
+
+        key.append(user != null ? user.getName() : "").append('\n');
+        key.append(context.getUriInfo().getBaseUri()).append('\n');
+        key.append(id);
+
+        if (meta.getVersionAttribute() != null) {
+            key.append("|version=").append(versions.get(0));
+        }
+
+        return key.append('|').append(getRepresentationKey(params)).toString();
+    }
+
+    /*
+     * Entity tag of a single resource derived from the resource's version and
+     * the query parameters that determine the content of the response, known
+     * before the resource is read. Null when the tag may not be derived from
+     * the version alone or the resource was not found.
+     */
+    public EntityTag getVersionTag(InternalContext context, EntityMeta meta) {
+        final InternalQuery params = context.getQuery();
+        final String id = context.getResourceId();
+
+        if (!isVersionTagged(context, meta) || !isVersionDerived(meta, params)) {
+            return null;
+        }
+
+        final List<Object> versions = findVersion(context, meta, id);
+
+        if (versions.isEmpty()) {
+            return null;
+        }
+
+        return toVersionTag(versions.get(0), params);
+    }
+
+    /*
+     * Entity tag of a single resource response that renders relationships or
+     * includes related resources, made up of the resource's version and a hash
+     * of the response content. Changes to related resources do not change the
+     * version, so the tag is only known once the response has been built.
+     */
+    public EntityTag getContentTag(InternalContext context, EntityMeta meta, JsonObject response) {
+        if (!isVersionTagged(context, meta)) {
+            return null;
+        }
+
+        final List<Object> versions = findVersion(context, meta, context.getResourceId());
+
+        if (versions.isEmpty()) {
+            return null;
+        }
+
+        return new EntityTag(versions.get(0) + ";" + Integer.toHexString(response.hashCode()));
+    }
+
+    static boolean isVersionTagged(InternalContext context, EntityMeta meta) {
+        return meta.isVersionEntityTags()
+                && context.getResourceId() != null
+                && context.getQuery().getFilters().isEmpty();
+    }
+
+    /*
+     * Responses that render none of the resource's relationships and include
+     * no related resources change only when the version changes.
+     */
+    static boolean isVersionDerived(EntityMeta meta, InternalQuery params) {
+        return params.getInclude().isEmpty()
+                && meta.getRelationshipNames()
+                       .stream()
+                       .noneMatch(name -> params.includeField(meta.getResourceType(), name));
+    }
+
+    /*
+     * Evaluate an `If-Match` precondition against the current version of the
+     * resource using a version query, before the resource is loaded. Returns
+     * the matched version, or null when the request has no `If-Match` (or the
+     * type does not use version entity tags, or the resource was not found).
+     */
+    Object evaluatePreconditions(InternalContext context, EntityMeta meta, String id) {
+        final String ifMatch = context.getIfMatch();
+
+        if (!meta.isVersionEntityTags() || ifMatch == null) {
+            return null;
+        }
+
+        final List<Object> versions = findVersion(context, meta, id);
+
+        if (versions.isEmpty()) {
+            return null;
+        }
+
+        if (!matchesVersion(ifMatch, versions.get(0))) {
+            throw preconditionFailed();
+        }
+
+        return versions.get(0);
+    }
+
+    /*
+     * Strong comparison (RFC 7232, section 3.1) of the `If-Match` entity tags
+     * with the version. Weak tags (`W/`) never match. Any (strong) tag given
+     * with a response of the resource's current version matches, including
+     * those of sparse fieldsets or included resources (`version;hash`).
+     */
+    static boolean matchesVersion(String ifMatch, Object version) {
+        final String plainTag = String.valueOf(version);
+        final String derivedTag = plainTag + ';';
+
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                continue;
+            }
+            if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(plainTag) || value.startsWith(derivedTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * The entity may have been modified by another transaction after its
+     * version was matched to the request's `If-Match`.
+     */
+    static void verifyVersion(EntityMeta meta, Object entity, Object matchedVersion) {
+        if (matchedVersion != null
+                && !matchedVersion.equals(meta.getPropertyValue(entity, meta.getVersionAttribute().getName()))) {
+            throw preconditionFailed();
+        }
+    }
+
+    static JsonApiErrorException preconditionFailed() {
+        return new JsonApiErrorException(Status.PRECONDITION_FAILED,
+                                         "Precondition Failed",
+                                         "The resource has been modified");
+    }
+
+    /*
+     * Entity tag of the resource's version alone, as given with single resource
+     * responses without sparse fieldsets or includes and expected by `If-Match`.
+     */
+    static EntityTag toVersionTag(Object version) {
+        return new EntityTag(String.valueOf(version));
+    }
+
+    static EntityTag toVersionTag(Object version, InternalQuery params) {
+        final StringBuilder value = new StringBuilder(String.valueOf(version));
+
+        if (!params.getFields().isEmpty() || !params.getInclude().isEmpty()) {
+            value.append(';').append(Integer.toHexString(getRepresentationKey(params).hashCode()));
+        }
+
+        return new EntityTag(value.toString());
+    }
+
+    static String getRepresentationKey(InternalQuery params) {
+        return "fields=" + new TreeMap<>(params.getFields()) + "|include=" + new TreeSet<>(params.getInclude());
+    }
+
+    /*
+     * The version of the resource (or its identifier when not versioned), as a
+     * list with no elements when the resource does not exist or is not visible
+     * to the user. Reads query the version once, writes each time it is needed.
+     */
+    List<Object> findVersion(InternalContext context, EntityMeta meta, String id) {
+        if (HttpMethod.GET.equals(context.getRequest().getMethod())) {
+            return context.getVersions()
+                          .computeIfAbsent(meta.getResourceType() + '/' + id, key -> queryVersion(context, meta, id));
+        }
+
+        return queryVersion(context, meta, id);
+    }
+
+    List<Object> queryVersion(InternalContext context, EntityMeta meta, String id) {
+        final QueryShape shape = new QueryShape("version");
+        describePredicates(shape, context.getSecurity().getUserPrincipal(), meta, id);
+
+        final TypedQuery<Object> query = createQuery(meta, shape, () -> {
+            final SingularAttribute<Object, ?> selected = Objects.requireNonNullElse(meta.getVersionAttribute(),
+                                                                                    meta.getExposedIdAttribute());
+            final CriteriaBuilder builder = em.getCriteriaBuilder();
+            final CriteriaQuery<Object> versionQuery = builder.createQuery();
+            final Root<Object> root = versionQuery.from(meta.getEntityClass());
+
+            versionQuery.select(root.get(selected));
+            List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+            versionQuery.where(predicates.toArray(new Predicate[predicates.size()]));
+            return versionQuery;
+        });
+
+        if (HttpMethod.GET.equals(context.getRequest().getMethod())) {
+            readOnly(query);
+        }
+
+        // Writes must flush pending changes (e.g. of earlier atomic operations) before the version is read
+        return query.getResultList();
+    }
+
+    /*
+     * Queries of GET requests never modify the entities they load. Pending
+     * changes are not flushed before such a query executes and the provider is
+     * asked (via hints) not to keep a snapshot of the results.
+     */
+    static <Q extends Query> Q readOnly(Q query) {
+        READ_ONLY_HINTS.forEach(query::setHint);
+        query.setFlushMode(FlushModeType.COMMIT);
+        return query;
+    }
+
+    /*
+     * Detach the entities once serialized, the persistence context need not
+     * hold the results for the remainder of the request.
+     */
+    void release(Collection<Entity> entities) {
+        for (Entity entity : entities) {
+            if (entity.getInstance() != null) {
+                em.detach(entity.getInstance());
+            }
+        }
+    }
+
+    /*
+     * The queries only run when the returned output is written, after the
+     * resource method has returned and the request's persistence context may
+     * have been closed. The output is read using a separate EntityManager
+     * opened for the duration of the write.
+     */
+    public StreamingOutput stream(InternalContext context) {
+        final EntityManagerFactory factory = em.getEntityManagerFactory();
+
+        return output -> {
+            EntityManager manager = factory.createEntityManager();
+
+            try {
+                final PersistenceController persistence = new PersistenceController(manager, model, validator, executor, transactions);
+                persistence.inReadTransaction(() -> persistence.write(context, output));
+            } finally {
+                manager.close();
+            }
+        };
+    }
+
+    /*
+     * Run the reads in a transaction of their own when the EntityManager is
+     * resource-local and not already joined to one, so that the version and
+     * the resources of a response are read consistently using a single
+     * connection (keeping any open result stream available). The transaction
+     * never writes and is rolled back. A JTA EntityManager reads in the
+     * container's transaction, if one is active. Queries run concurrently
+     * using separate EntityManagers are not part of the transaction.
+     */
+    public void inReadTransaction(Runnable reads) {
+        final EntityTransaction transaction = getReadTransaction();
+
+        if (transaction == null) {
+            reads.run();
+            return;
+        }
+
+        transaction.begin();
+
+        try {
+            reads.run();
+        } finally {
+            transaction.rollback();
+        }
+    }
+
+    EntityTransaction getReadTransaction() {
+        if (em.isJoinedToTransaction()) {
+            return null;
+        }
+
+        try {
+            return em.getTransaction();
+        } catch (IllegalStateException e) {
+            // JTA EntityManager
+            return null;
+        }
+    }
+
+    /*
+     * Rows are read in batches so that the included resources may be loaded
+     * for each batch before it is written.
+     */
+    void write(InternalContext context, OutputStream output) {
+        final InternalQuery params = context.getQuery();
+        final EntityMeta meta = params.getEntityMeta();
+        final FetchQueries queries = buildQueries(context, meta, null);
+
+        try (JsonGenerator generator = Json.createGenerator(output)) {
+            generator.writeStartObject();
+            writer.topLevelBuilder().build().forEach(generator::write);
+            generator.writeStartArray("data");
+
+            final Set<Entity> included = new LinkedHashSet<>();
+            final Set<Entity> primary = new HashSet<>();
+            final List<Entity> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+            int count = 0;
+            Entity first = null;
+            Entity last = null;
+
+            try (Stream<Tuple> results = queries.dataQuery.getResultStream()) {
+                Iterator<Tuple> cursor = results.iterator();
+
+                while (cursor.hasNext()) {
+                    Entity result = toEntity(meta, queries, cursor.next());
+                    batch.add(result);
+                    last = result;
+
+                    if (count++ == 0) {
+                        first = last;
+                    }
+
+                    if (batch.size() == STREAM_BATCH_SIZE || !cursor.hasNext()) {
+                        writeBatch(generator, meta, params, queries, batch, included, primary);
+                        batch.clear();
+                    }
+                }
+            }
+
+            generator.writeEnd();
+
+            // Written following the data so that the count may be derived from the rows read
+            final Long totalResults = join(getTotalResults(context, meta, queries, count));
+
+            if (totalResults != null) {
+                generator.writeStartObject("meta").write("totalResults", totalResults).writeEnd();
+            }
+
+            if (params.isKeysetPaging()) {
+                generator.write("links", getPageLinks(params, count, first, last));
+            }
+
+            included.removeAll(primary);
+
+            if (!included.isEmpty()) {
+                generator.writeStartArray("included");
+                included.forEach(entity -> generator.write(includedToJson(params, entity)));
+                generator.writeEnd();
+            }
+
+            release(included);
+
+            generator.writeEnd();
+        }
+    }
+
+    /*
+     * The total number of results is only counted when the request is paged and
+     * the total was not declined by either the client or the resource type. When
+     * the page is shorter than the limit the total is known without counting,
+     * otherwise the count is taken from the resource type's cache (if any).
+     * Only a total that must be counted is submitted to run (concurrently when
+     * enabled for the type) once the results of the page are known.
+     */
+    CompletableFuture<Long> getTotalResults(InternalContext context, EntityMeta meta, FetchQueries queries, int count) {
+        final InternalQuery params = context.getQuery();
+
+        if (!isTotalCounted(meta, params, queries)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (count < params.getMaxResults()) {
+            if (params.isKeysetPaging()) {
+                String cursor = params.getPageBefore() != null ? params.getPageBefore() : params.getPageAfter();
+
+                if (cursor.isEmpty()) {
+                    return CompletableFuture.completedFuture((long) count);
+                }
+            } else {
+                int firstResult = Objects.requireNonNullElse(params.getFirstResult(), 0);
+
+                if (count > 0 || firstResult == 0) {
+                    return CompletableFuture.completedFuture((long) firstResult + count);
+                }
+            }
+        }
+
+        final ExpiringCache<String, Long> cache = meta.getTotalCountCache();
+
+        if (cache == null) {
+            return submit(meta, manager -> queries.countQuery.apply(manager).getSingleResult());
+        }
+
+        final String cacheKey = getTotalCountKey(context);
+        final Long cached = cache.get(cacheKey);
+
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return submit(meta, manager -> {
+            Long total = queries.countQuery.apply(manager).getSingleResult();
+            cache.put(cacheKey, total);
+            return total;
+        });
+    }
+
+    static boolean isTotalCounted(EntityMeta meta, InternalQuery params, FetchQueries queries) {
+        final Boolean pageTotal = params.getPageTotal();
+        return queries.countQuery != null && (pageTotal != null ? pageTotal : meta.isTotalCount());
+    }
+
+    /*
+     * Run the query function with a separate EntityManager using the executor
+     * when concurrent queries are enabled for the resource type, otherwise
+     * with the request's EntityManager in the calling thread. The function
+     * must not retain managed entities, the separate EntityManager is closed
+     * once it completes.
+     */
+    <R> CompletableFuture<R> submit(EntityMeta meta, Function<EntityManager, R> query) {
+        if (!meta.isConcurrentQueries() || executor == null) {
+            return CompletableFuture.completedFuture(query.apply(em));
+        }
+
+        final EntityManagerFactory factory = em.getEntityManagerFactory();
+
+        return CompletableFuture.supplyAsync(() -> {
+            EntityManager manager = factory.createEntityManager();
+
+            try {
+                return query.apply(manager);
+            } finally {
+                manager.close();
+            }
+        }, executor);
+    }
+
+    static <R> R join(CompletableFuture<R> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PersistenceException(cause);
+        }
+    }
+
+    static String getTotalCountKey(InternalContext context) {
+        final InternalQuery params = context.getQuery();
+        final Principal user = context.getSecurity().getUserPrincipal();
+
+        return String.join("\n",
+                           context.getResourceType(),
+                           Objects.toString(context.getResourceId(), ""),
+                           Objects.toString(context.getRelationshipName(), ""),
+                           new TreeMap<>(params.getFilters()).toString(),
+                           user != null ? user.getName() : "");
+    }
+
+    /*
+     * Cached totals and responses of the changed type and of every type
+     * connected to it by relationships (directly or through others) may count
+     * or render the changed rows, e.g. through a filter on a relationship path
+     * or as included resources. Cached resources of any type may hold the
+     * affected relationships.
+     *
+     * The caches are invalidated immediately and, when the change is made in a
+     * JTA transaction, again once the transaction completes. Otherwise a
+     * request reading between the change and its commit could cache the
+     * previous state for the remainder of the entries' time-to-live. Without
+     * a transaction registry (e.g. resource-local transactions) only the
+     * immediate invalidation applies.
+     */
+    void invalidateCaches(EntityMeta meta) {
+        if (flushDeferred) {
+            deferredInvalidations.add(meta);
+            return;
+        }
+
+        final Set<EntityMeta> affected = getConnectedMetas(meta);
+        invalidateCaches(affected);
+
+        if (transactions == null || transactions.getTransactionKey() == null) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<EntityMeta> pending = (Set<EntityMeta>) transactions.getResource(PENDING_INVALIDATION_KEY);
+
+        if (pending == null) {
+            final Set<EntityMeta> invalidated = new HashSet<>();
+            pending = invalidated;
+            transactions.putResource(PENDING_INVALIDATION_KEY, invalidated);
+            transactions.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // Nothing to do until the outcome is known
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateCaches(invalidated);
+                }
+            });
+        }
+
+        pending.addAll(affected);
+    }
+
+    void invalidateCaches(Set<EntityMeta> affected) {
+        for (EntityMeta affectedMeta : affected) {
+            final ExpiringCache<String, Long> totalCountCache = affectedMeta.getTotalCountCache();
 
-        if (user != null) {
-            String namePath = meta.getPrincipalNamePath();
-            Predicate userPredicate = buildPredicate(builder, root, namePath, user.getName());
+            if (totalCountCache != null) {
+                totalCountCache.invalidateAll();
+            }
+
+            final ExpiringCache<String, JsonObject> responseCache = affectedMeta.getResponseCache();
 
-            if (userPredicate != null) {
-                predicates.add(userPredicate);
+            if (responseCache != null) {
+                responseCache.invalidateAll();
             }
-        }
 
-        if (id != null) {
-            final Object key = meta.readId(id);
-            predicates.add(builder.equal(root.get(meta.getExposedIdAttribute()), key));
-        }
+            final ExpiringCache<String, JsonObject> resourceCache = affectedMeta.getResourceCache();
 
-        return predicates;
+            if (resourceCache != null) {
+                resourceCache.invalidateAll();
+            }
+        }
     }
 
-    static <T> Predicate buildPredicate(CriteriaBuilder builder,
-                                        Root<T> root,
-                                        String path,
-                                        String value) {
-        Predicate p = null;
+    Set<EntityMeta> getConnectedMetas(EntityMeta meta) {
+        final Set<EntityMeta> connected = new HashSet<>();
+        final Deque<EntityMeta> pending = new ArrayDeque<>();
+        pending.add(meta);
 
-        if (path != null && path.length() > 0) {
-            String[] elements = path.split("\\.");
-            From<?, ?> namePath = root;
+        while (!pending.isEmpty()) {
+            EntityMeta current = pending.remove();
 
-            for (int i = 0; i < elements.length; i++) {
-                if (i + 1 == elements.length) {
-                    if ("null".equals(value)) {
-                        p = builder.isNull(namePath.get(elements[i]));
-                    } else if ("!null".equals(value)) {
-                        p = builder.isNotNull(namePath.get(elements[i]));
-                    } else {
-                        p = builder.equal(namePath.get(elements[i]), value);
-                    }
-                } else {
-                    namePath = join(namePath, elements[i]);
-                }
+            if (connected.add(current)) {
+                model.getEntityMetas()
+                     .stream()
+                     .filter(other -> isRelated(current, other) || isRelated(other, current))
+                     .forEach(pending::add);
             }
         }
 
-        return p;
+        return connected;
     }
 
-    @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
-    static <Z, X> Join<X, ?> join(From<Z, X> from, String attribute) {
-        final String relationship;
-        final JoinType joinType;
+    static boolean isRelated(EntityMeta meta, EntityMeta other) {
+        return meta.getRelationshipNames()
+                   .stream()
+                   .map(meta::getRelatedEntityClass)
+                   .anyMatch(other.getEntityClass()::equals);
+    }
 
-        if (attribute.startsWith("+")) {
-            // Left JOIN
-            relationship = attribute.substring(1);
-            joinType = JoinType.LEFT;
-        } else {
-            relationship = attribute;
-            joinType = JoinType.INNER;
+    void writeBatch(JsonGenerator generator,
+                    EntityMeta meta,
+                    InternalQuery params,
+                    FetchQueries queries,
+                    List<Entity> batch,
+                    Set<Entity> included,
+                    Set<Entity> primary) {
+
+        final Map<Object, Map<String, List<Entity>>> relationships = initializeRelationships(batch, meta);
+        final Set<Object> ids = Set.copyOf(relationships.keySet());
+        final CompletableFuture<Map<Object, Map<String, Long>>> pendingCounts = countRelationships(meta, queries, ids);
+        getIncluded(meta, params, relationships);
+        final Map<Object, Map<String, Long>> counts = join(pendingCounts);
+
+        for (Entity result : batch) {
+            generator.write(toJson(params, relationships, counts, result));
+            primary.add(new Entity(meta, result.getId(), null));
         }
 
-        final String targetAliasName = ALIAS_PRE + relationship;
+        release(batch);
 
-        return from.getJoins()
-                   .stream()
-                   .filter(j -> targetAliasName.equals(j.getAlias()))
-                   .findFirst()
-                   .orElseGet(() -> newJoin(from, relationship, joinType));
+        included.addAll(distinctRelated(relationships));
     }
 
-    @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
-    static <Z, X> Join<X, ?> newJoin(From<Z, X> from, String attribute, JoinType joinType) {
-        Join<X, ?> joined = from.join(attribute, joinType);
-        joined.alias(ALIAS_PRE + attribute);
-        return joined;
-    }
+    Entity toEntity(EntityMeta meta, FetchQueries queries, Tuple result) {
+        if (queries.projection == null) {
+            return new Entity(meta, result.get("root"));
+        }
 
-    @SuppressWarnings("unchecked")
-    public <T> T findObject(InternalContext context, String resourceType, String id) {
-        EntityMeta meta = model.getEntityMeta(resourceType);
-        EntityType<Object> rootType = meta.getEntityType();
-        Class<T> entityClass = (Class<T>) meta.getEntityClass();
-        List<Attribute<Object, ?>> fetchedAttributes;
+        Map<String, Object> attributes = new HashMap<>(queries.projection.size());
+        queries.projection.forEach(name -> attributes.put(name, result.get(name)));
 
-        fetchedAttributes = rootType.getAttributes()
-                                    .stream()
-                                    .filter(a -> !a.isAssociation())
-                                    .collect(Collectors.toList());
+        return new Entity(meta, result.get(ALIAS_ID), attributes);
+    }
 
-        EntityGraph<T> graph = em.createEntityGraph(entityClass);
-        Attribute<T, ?>[] attrNodes = new Attribute[fetchedAttributes.size()];
-        graph.addAttributeNodes(fetchedAttributes.toArray(attrNodes));
+    JsonObject toJson(InternalQuery params,
+                      Map<Object, Map<String, List<Entity>>> relationships,
+                      Map<Object, Map<String, Long>> counts,
+                      Entity result) {
 
-        final T entity;
+        Object resultId = result.getId();
+        Map<String, Object> related = new TreeMap<>(relationships.get(resultId));
+        related.putAll(counts.getOrDefault(resultId, Collections.emptyMap()));
 
-        try {
-            final CriteriaBuilder builder = em.getCriteriaBuilder();
-            final CriteriaQuery<T> query = (CriteriaQuery<T>) builder.createQuery();
-            Root<T> root = query.from(entityClass);
-            query.select(root.alias("root"));
+        return writer.toJson(result, related, params, params.getUriInfo());
+    }
+
+    FetchQueries buildQueries(InternalContext context, EntityMeta meta, EntityMeta relatedMeta) {
+        final InternalQuery params = context.getQuery();
+        final QueryShape shape = describeFetch(context, meta, relatedMeta);
+        final FetchPlan plan = getPlan(meta, shape, () -> createFetchPlan(context, meta, relatedMeta, shape));
 
-            List<Predicate> predicates = buildPredicates(builder,
-                                                         root,
-                                                         context.getSecurity().getUserPrincipal(),
-                                                         meta,
-                                                         id);
+        TypedQuery<Tuple> typedQuery = readOnly(shape.bindTo(em.createQuery(plan.dataQuery)));
 
-            if (!predicates.isEmpty()) {
-                query.where(predicates.toArray(new Predicate[predicates.size()]));
-            }
+        if (params.getFirstResult() != null) {
+            typedQuery.setFirstResult(params.getFirstResult());
+        }
 
-            Query q = em.createQuery(query);
-            q.setHint("javax.persistence.fetchgraph", graph);
+        Function<EntityManager, TypedQuery<Long>> countQuery;
 
-            entity = (T) q.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } catch (Exception e) {
-            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", e.getMessage());
+        if (params.getMaxResults() != null) {
+            typedQuery.setMaxResults(params.getMaxResults());
+            countQuery = manager -> readOnly(shape.bindTo(manager.createQuery(plan.countQuery)));
+        } else {
+            countQuery = null;
         }
 
-        return entity;
+        return new FetchQueries(typedQuery, plan.counted, countQuery, plan.projection);
     }
 
-    public <T> JsonObject fetch(InternalContext context, JsonApiHandler<T> handler) {
+    QueryShape describeFetch(InternalContext context, EntityMeta meta, EntityMeta relatedMeta) {
         final InternalQuery params = context.getQuery();
-        final EntityMeta meta;
-        final EntityMeta relatedMeta;
         final String relationshipName = context.getRelationshipName();
+        final Principal user = context.getSecurity().getUserPrincipal();
+        final QueryShape shape = new QueryShape("fetch");
 
         if (relationshipName != null) {
-            meta = model.getEntityMeta(params.getEntityMeta().getRelatedEntityClass(relationshipName));
-            relatedMeta = params.getEntityMeta();
+            shape.append(relatedMeta.getResourceType())
+                 .append(relationshipName)
+                 .bind(PARAM_RELATED_ID, relatedMeta.readId(params.getId()));
+            describePredicates(shape, user, meta, null);
         } else {
-            meta = params.getEntityMeta();
-            relatedMeta = null;
+            describePredicates(shape, user, meta, params.getId());
         }
 
-        final Class<Object> entityClass = meta.getEntityClass();
-        final FetchQueries queries = buildQueries(context, meta, relatedMeta);
-
-        final List<Tuple> results = queries.dataQuery.getResultList();
-        final Long totalResults = queries.countQuery != null ? queries.countQuery.getSingleResult() : null;
-
-        /*
-         * Build empty map to hold relationships based on those requested by the
-         * client.
-         **/
-        final Map<Object, Map<String, List<Entity>>> relationships = initializeRelationships(results, meta);
+        int index = 0;
 
-        /* Only retrieve included records if something was found. */
-        if (!results.isEmpty()) {
-            for (String included : params.getInclude()) {
-                getIncluded(entityClass, relationships, included);
-            }
+        for (Map.Entry<String, String> filter : new TreeMap<>(params.getFilters()).entrySet()) {
+            shape.append("filter[" + filter.getKey() + "]" + predicateKind(filter.getValue()))
+                 .bind(PARAM_FILTER + index++, readFilterValue(meta, filter.getKey(), filter.getValue()));
         }
 
-        JsonArrayBuilder data = Json.createArrayBuilder();
-        Map<String, Object> related = new TreeMap<>();
-        JsonValue dataEntry = null;
-
-        for (Tuple result : results) {
-            Object entity = result.get("root");
-            Object resultId = meta.getIdValue(entity);
+        shape.append("include" + new TreeSet<>(params.getInclude()));
+        shape.append("fields" + getProjection(context, meta, relatedMeta));
+        shape.append("sort" + getSortKeys(meta, params));
 
-            related.clear();
-            related.putAll(relationships.get(resultId));
-            queries.counted.forEach(relationship -> related.put(relationship, result.get(ALIAS_PRE + relationship)));
-            dataEntry = writer.toJson(new Entity(meta, entity), related, params, params.getUriInfo());
-            data.add(dataEntry);
+        if (params.getPageBefore() != null) {
+            shape.append("reverse");
         }
 
-        if (notFoundPrimaryResource(dataEntry, relatedMeta, relationshipName, params)) {
-            // 404 Not Found for primary (non-relationship) resources
-            handler.afterFind(context, null);
-            return null;
+        if (params.getMaxResults() != null) {
+            shape.append("paged");
         }
 
-        JsonObjectBuilder response = writer.topLevelBuilder();
-
-        if (totalResults != null) {
-            response.add("meta", Json.createObjectBuilder().add("totalResults", totalResults));
+        if (params.isKeysetPaging()) {
+            describeKeyset(shape, meta, params);
         }
 
-        if (isSingular(relatedMeta, relationshipName, params)) {
-            if (dataEntry == null) {
-                handler.afterFind(context, null);
-                dataEntry = JsonValue.NULL;
-            } else {
-                @SuppressWarnings("unchecked")
-                T resultEntity = (T) results.get(0).get("root");
-                handler.afterFind(context, resultEntity);
-            }
+        return shape;
+    }
 
-            response.add("data", dataEntry);
-        } else {
-            response.add("data", data);
+    /*
+     * Convert the filter value to the type of the filtered attribute, found by
+     * following the filter's path from the primary entity type.
+     */
+    Object readFilterValue(EntityMeta meta, String path, String value) {
+        if ("null".equals(value) || "!null".equals(value)) {
+            return value;
         }
 
-        // Get unique set of included objects
-        final Set<Entity> included = distinctRelated(relationships);
+        final String[] elements = path.split("\\.");
+        EntityMeta leafMeta = meta;
 
-        if (!included.isEmpty()) {
-            response.add("included", mapIncludedToJson(params, included));
+        for (int i = 0; i + 1 < elements.length; i++) {
+            leafMeta = JsonApiUriQueryValidator.getRelatedEntityMeta(model, leafMeta, elements[i]);
         }
 
-        return response.build();
+        return reader.readValue(leafMeta, elements[elements.length - 1], value);
     }
 
-    FetchQueries buildQueries(InternalContext context, EntityMeta meta, EntityMeta relatedMeta) {
-        InternalQuery params = context.getQuery();
-        final String relationshipName = context.getRelationshipName();
-
-        Class<Object> entityClass = meta.getEntityClass();
-        EntityType<Object> rootType = meta.getEntityType();
-
-        String id = params.getId();
+    FetchPlan createFetchPlan(InternalContext context, EntityMeta meta, EntityMeta relatedMeta, QueryShape shape) {
+        final InternalQuery params = context.getQuery();
+        final Class<Object> entityClass = meta.getEntityClass();
+        final EntityType<Object> rootType = meta.getEntityType();
 
         final CriteriaBuilder builder = em.getCriteriaBuilder();
         final CriteriaQuery<Tuple> query = builder.createTupleQuery();
 
         Root<Object> root = query.from(entityClass);
         root.alias("root");
-        Join<Object, Object> relatedJoin;
-
-        if (relationshipName != null) {
-            Class<Object> owningType = relatedMeta.getEntityType().getJavaType();
-            Attribute<Object, ?> attribute = relatedMeta.getEntityType().getAttribute(relationshipName);
-            relatedJoin = root.join(inverseOf(owningType, attribute).getName());
-        } else {
-            relatedJoin = null;
-        }
 
         Set<String> counted = rootType.getAttributes()
                                       .stream()
                                       .filter(Attribute::isAssociation)
                                       .map(Attribute::getName)
                                       .filter(meta::isRelatedTo)
-                                      .filter(not(params.getInclude()::contains))
+                                      .filter(not(getIncludedRelationships(params)::contains))
                                       .collect(Collectors.toSet());
 
         /*
-         * Select the root entity and count all non-included relationships.
+         * Select only the root entity (or the requested attributes of it), the
+         * non-included relationships are counted separately once the page of
+         * results is known.
          */
-        List<Selection<?>> selections = new ArrayList<>(1 + counted.size());
-        selections.add(root);
-
-        for (String collection : counted) {
-            Join<Object, Object> countJoin = root.join(collection, JoinType.LEFT);
-            Expression<Long> count = builder.countDistinct(countJoin);
-            selections.add(count.alias(ALIAS_PRE + collection));
-        }
-
-        query.multiselect(selections);
+        final Set<String> projection = getProjection(context, meta, relatedMeta);
 
-        final List<Predicate> predicates;
-
-        if (relationshipName != null) {
-            predicates = buildPredicates(builder, root, context.getSecurity().getUserPrincipal(), meta, null);
-            final Object key = meta.readId(id);
-            predicates.add(builder.equal(relatedJoin.get(relatedMeta.getExposedIdAttribute()), key));
+        if (projection != null) {
+            List<Selection<?>> selections = new ArrayList<>(1 + projection.size());
+            selections.add(root.get(meta.getExposedIdAttribute()).alias(ALIAS_ID));
+            projection.forEach(name -> selections.add(root.get(name).alias(name)));
+            query.multiselect(selections);
         } else {
-            predicates = buildPredicates(builder, root, context.getSecurity().getUserPrincipal(), meta, id);
+            query.multiselect(root);
         }
 
-        if (!params.getFilters().isEmpty()) {
-            params.getFilters()
-                  .entrySet()
-                  .stream()
-                  .map(e -> buildPredicate(builder, root, e.getKey(), e.getValue()))
-                  .filter(Objects::nonNull)
-                  .forEach(predicates::add);
+        final List<Predicate> predicates = buildFetchPredicates(builder, root, context, meta, relatedMeta, shape);
+        final Predicate keyset = buildKeysetPredicate(builder, root, meta, params, shape);
+
+        if (keyset != null) {
+            predicates.add(keyset);
         }
 
         if (!predicates.isEmpty()) {
@@ -543,83 +2233,302 @@ public class PersistenceController {
         }
 
         /*
-         * Group by the root entity (supports counting relationships).
+         * Joins added for filters or the principal name path may repeat the
+         * root entity.
          */
-        query.groupBy(root);
-        query.orderBy(getOrderBy(builder, root, params));
-
-        TypedQuery<Tuple> typedQuery = em.createQuery(query);
-
-        if (params.getFirstResult() != null) {
-            typedQuery.setFirstResult(params.getFirstResult());
-        }
+        query.distinct(root.getJoins().stream().map(Join::getAlias).anyMatch(not(ALIAS_RELATED::equals)));
+        query.orderBy(getOrderBy(builder, root, meta, params));
 
-        TypedQuery<Long> countQuery;
+        CriteriaQuery<Long> countQuery;
 
         if (params.getMaxResults() != null) {
-            typedQuery.setMaxResults(params.getMaxResults());
-
-            CriteriaQuery<Long> countBuilder = builder.createQuery(Long.class);
-            Root<Object> countRoot = countBuilder.from(entityClass);
+            countQuery = builder.createQuery(Long.class);
+            Root<Object> countRoot = countQuery.from(entityClass);
             countRoot.alias("root");
 
-            for (String collection : counted) {
-                countRoot.join(collection, JoinType.LEFT).alias(collection);
-            }
+            List<Predicate> countPredicates = buildFetchPredicates(builder, countRoot, context, meta, relatedMeta, shape);
 
-            if (!predicates.isEmpty()) {
-                countBuilder.where(predicates.toArray(new Predicate[predicates.size()]));
+            if (!countPredicates.isEmpty()) {
+                countQuery.where(countPredicates.toArray(new Predicate[countPredicates.size()]));
             }
             Expression<Long> count = builder.countDistinct(countRoot);
-            countBuilder.select(count);
-            countQuery = em.createQuery(countBuilder);
+            countQuery.select(count);
         } else {
             countQuery = null;
         }
 
-        return new FetchQueries(typedQuery, counted, countQuery, relatedJoin);
+        return new FetchPlan(query, counted, countQuery, projection);
+    }
+
+    /*
+     * The attributes to select for the primary resources when the client
+     * requested a sparse fieldset for their type, or null when the entity is
+     * selected in full. Sort keys are always selected for ordering and page
+     * cursors. Single resources are always selected in full, they are given to
+     * the handler's `afterFind`.
+     */
+    Set<String> getProjection(InternalContext context, EntityMeta meta, EntityMeta relatedMeta) {
+        final InternalQuery params = context.getQuery();
+        final List<String> fields = params.getFields().get(meta.getResourceType());
+
+        if (fields == null || isSingular(relatedMeta, context.getRelationshipName(), params)) {
+            return null;
+        }
+
+        final Set<String> projection = fields.stream()
+                                             .filter(meta::hasAttribute)
+                                             .collect(Collectors.toCollection(TreeSet::new));
+
+        params.getSort()
+              .stream()
+              .map(sortKey -> sortKey.substring(sortKey.startsWith("-") ? 1 : 0))
+              .forEach(projection::add);
+
+        return projection;
+    }
+
+    List<Predicate> buildFetchPredicates(CriteriaBuilder builder,
+                                         Root<Object> root,
+                                         InternalContext context,
+                                         EntityMeta meta,
+                                         EntityMeta relatedMeta,
+                                         QueryShape shape) {
+
+        final String relationshipName = context.getRelationshipName();
+        final List<Predicate> predicates = buildPredicates(builder, root, meta, shape);
+
+        if (relationshipName != null) {
+            Class<Object> owningType = relatedMeta.getEntityType().getJavaType();
+            Attribute<Object, ?> attribute = relatedMeta.getEntityType().getAttribute(relationshipName);
+            Join<Object, Object> relatedJoin = root.join(inverseOf(owningType, attribute).getName());
+            relatedJoin.alias(ALIAS_RELATED);
+
+            Path<?> relatedId = relatedJoin.get(relatedMeta.getExposedIdAttribute());
+            predicates.add(builder.equal(relatedId, parameter(builder, relatedId, PARAM_RELATED_ID)));
+        }
+
+        int index = 0;
+
+        for (Map.Entry<String, String> filter : new TreeMap<>(context.getQuery().getFilters()).entrySet()) {
+            Predicate predicate = buildPredicate(builder, root, filter.getKey(), filter.getValue(), PARAM_FILTER + index++);
+
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+
+        return predicates;
+    }
+
+    /*
+     * Count the non-included relationships of the identified entities using a
+     * single grouped query per relationship, rather than joining every
+     * relationship into the primary data query. Entities absent from a query's
+     * results have no related entities.
+     */
+    CompletableFuture<Map<Object, Map<String, Long>>> countRelationships(EntityMeta meta, FetchQueries queries, Set<Object> ids) {
+        if (queries.counted.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return submit(meta, manager -> countRelationships(manager, meta, queries.counted, ids));
+    }
+
+    Map<Object, Map<String, Long>> countRelationships(EntityManager manager, EntityMeta meta, Set<String> counted, Set<Object> ids) {
+        final Map<Object, Map<String, Long>> counts = new HashMap<>(ids.size());
+
+        if (counted.isEmpty() || ids.isEmpty()) {
+            return counts;
+        }
+
+        final Map<String, Long> prototype = counted.stream()
+                                                   .collect(Collectors.toMap(Function.identity(), name -> 0L));
+
+        ids.forEach(id -> counts.put(id, new HashMap<>(prototype)));
+
+        for (String relationship : counted) {
+            final QueryShape shape = new QueryShape("count").append(relationship);
+            final Supplier<CriteriaQuery<Tuple>> factory = () -> {
+                final CriteriaBuilder builder = manager.getCriteriaBuilder();
+                final CriteriaQuery<Tuple> countQuery = builder.createTupleQuery();
+                final Root<Object> root = countQuery.from(meta.getEntityClass());
+                final Path<?> rootId = root.get(meta.getExposedIdAttribute());
+                final Join<Object, Object> join = root.join(relationship);
+
+                countQuery.multiselect(rootId.alias("rootId"), builder.count(join).alias("count"))
+                          .where(rootId.in(idsParameter(builder)))
+                          .groupBy(rootId);
+
+                return countQuery;
+            };
+
+            for (List<Object> chunk : chunkIds(ids)) {
+                shape.bind(PARAM_IDS, chunk);
+
+                for (Tuple result : readOnly(createQuery(manager, meta, shape, factory)).getResultList()) {
+                    counts.get(result.get("rootId")).put(relationship, result.get("count", Long.class));
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    /*
+     * Load the resources for each include path breadth-first, one level of the
+     * paths at a time. Resources of each level are keyed by the exposed
+     * identifiers of the resources of the previous level (or the primary
+     * resources). A resource reached more than once is loaded (and related)
+     * only once. The paths of a level are queried concurrently when enabled
+     * for the primary resource type.
+     */
+    void getIncluded(EntityMeta primaryMeta,
+                     InternalQuery params,
+                     Map<Object, Map<String, List<Entity>>> relationships) {
+
+        final Map<Entity, Entity> loaded = new HashMap<>();
+        final Map<String, EntityMeta> levelMeta = new HashMap<>();
+        final Map<String, Map<Object, Map<String, List<Entity>>>> levelRelationships = new HashMap<>();
+
+        levelMeta.put("", primaryMeta);
+        levelRelationships.put("", relationships);
+
+        for (List<String> level : getIncludeLevels(params)) {
+            final Map<String, CompletableFuture<List<Tuple>>> pending = new LinkedHashMap<>(level.size());
+
+            for (String path : level) {
+                final EntityMeta parentMeta = levelMeta.get(getParentPath(path));
+                final String includedName = getIncludedName(path);
+                final List<List<Object>> chunks = chunkIds(levelRelationships.get(getParentPath(path)).keySet());
+
+                pending.put(path, submit(primaryMeta, manager -> getIncluded(manager, parentMeta, includedName, chunks)));
+            }
+
+            for (Map.Entry<String, CompletableFuture<List<Tuple>>> entry : pending.entrySet()) {
+                final String path = entry.getKey();
+                final EntityMeta parentMeta = levelMeta.get(getParentPath(path));
+                final String includedName = getIncludedName(path);
+                final EntityMeta includedMeta = model.getEntityMeta(parentMeta.getRelatedEntityClass(includedName));
+
+                Collection<Entity> included = relateIncluded(includedMeta,
+                                                             levelRelationships.get(getParentPath(path)),
+                                                             includedName,
+                                                             join(entry.getValue()),
+                                                             loaded);
+
+                Map<Object, Map<String, List<Entity>>> nextLevel = new HashMap<>(included.size());
+                included.forEach(entity -> nextLevel.put(entity.getId(), entity.getRelated()));
+
+                levelMeta.put(path, includedMeta);
+                levelRelationships.put(path, nextLevel);
+            }
+        }
+    }
+
+    static String getParentPath(String path) {
+        final int separator = path.lastIndexOf('.');
+        return separator < 0 ? "" : path.substring(0, separator);
+    }
+
+    static String getIncludedName(String path) {
+        return path.substring(path.lastIndexOf('.') + 1);
+    }
+
+    /*
+     * The include paths grouped by depth, shallowest first.
+     */
+    static Collection<List<String>> getIncludeLevels(InternalQuery params) {
+        return getIncludePaths(params).stream()
+                                      .collect(Collectors.groupingBy(path -> path.split("\\.").length,
+                                                                     TreeMap::new,
+                                                                     Collectors.toList()))
+                                      .values();
     }
 
-    void getIncluded(Class<Object> primaryClass,
-                     Map<Object, Map<String, List<Entity>>> relationships,
-                     String includedName) {
+    /*
+     * All paths and their parent paths given by `include`, ordered by depth.
+     */
+    static List<String> getIncludePaths(InternalQuery params) {
+        return params.getInclude()
+                     .stream()
+                     .flatMap(include -> {
+                         String[] elements = include.split("\\.");
+                         return IntStream.rangeClosed(1, elements.length)
+                                         .mapToObj(depth -> String.join(".", Arrays.copyOf(elements, depth)));
+                     })
+                     .distinct()
+                     .sorted(Comparator.comparingLong(path -> path.chars().filter(c -> c == '.').count()))
+                     .collect(Collectors.toList());
+    }
+
+    static Set<String> getIncludedRelationships(InternalQuery params) {
+        return params.getInclude()
+                     .stream()
+                     .map(include -> include.split("\\.")[0])
+                     .collect(Collectors.toSet());
+    }
+
+    List<Tuple> getIncluded(EntityManager manager,
+                            EntityMeta primaryMeta,
+                            String includedName,
+                            List<List<Object>> chunks) {
 
-        EntityMeta primaryMeta = model.getEntityMeta(primaryClass);
         EntityType<Object> primaryType = primaryMeta.getEntityType();
 
         Attribute<Object, ?> includedAttribute = primaryType.getAttribute(includedName);
         @SuppressWarnings("unchecked")
         Class<Object> includedClass = ((Bindable<Object>) includedAttribute).getBindableJavaType();
         EntityMeta includedMeta = model.getEntityMeta(includedClass);
-        Attribute<Object, ?> inverseAttribute = inverseOf(primaryType.getJavaType(), includedAttribute);
 
-        final CriteriaBuilder builder = em.getCriteriaBuilder();
-        final CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        final QueryShape shape = new QueryShape("include").append(includedName);
+        final Supplier<CriteriaQuery<Tuple>> factory = () -> {
+            Attribute<Object, ?> inverseAttribute = inverseOf(primaryType.getJavaType(), includedAttribute);
 
-        final Root<Object> root = query.from(includedClass);
-        final Join<Object, Object> join = root.join(inverseAttribute.getName());
+            final CriteriaBuilder builder = manager.getCriteriaBuilder();
+            final CriteriaQuery<Tuple> includedQuery = builder.createTupleQuery();
 
-        final Path<?> primaryId = join.get(primaryMeta.getIdAttribute());
-        final Path<?> includedId = root.get(includedMeta.getExposedIdAttribute());
+            final Root<Object> root = includedQuery.from(includedClass);
+            final Join<Object, Object> join = root.join(inverseAttribute.getName());
 
-        final List<Selection<?>> selections = new ArrayList<>(2 + includedMeta.getAttributes().size());
+            final Path<?> primaryId = join.get(primaryMeta.getExposedIdAttribute());
+            final Path<?> includedId = root.get(includedMeta.getExposedIdAttribute());
 
-        selections.add(primaryId.alias("primaryId"));
-        selections.add(includedId.alias("includedId"));
-        selections.addAll(includedMeta.getAttributeNames()
-                                      .stream()
-                                      .map(attr -> root.get(attr).alias(attr))
-                                      .collect(Collectors.toList()));
+            final List<Selection<?>> selections = new ArrayList<>(2 + includedMeta.getAttributes().size());
+
+            selections.add(primaryId.alias("primaryId"));
+            selections.add(includedId.alias("includedId"));
+            selections.addAll(includedMeta.getAttributeNames()
+                                          .stream()
+                                          .map(attr -> root.get(attr).alias(attr))
+                                          .collect(Collectors.toList()));
 
-        query.multiselect(selections)
-             .where(primaryId.in(relationships.keySet()));
+            includedQuery.multiselect(selections)
+                         .where(primaryId.in(idsParameter(builder)));
 
-        TypedQuery<Tuple> typedQuery = em.createQuery(query);
+            return includedQuery;
+        };
+
+        final List<Tuple> results = new ArrayList<>();
+
+        for (List<Object> chunk : chunks) {
+            shape.bind(PARAM_IDS, chunk);
+            results.addAll(readOnly(createQuery(manager, primaryMeta, shape, factory)).getResultList());
+        }
+
+        return results;
+    }
+
+    Collection<Entity> relateIncluded(EntityMeta includedMeta,
+                                      Map<Object, Map<String, List<Entity>>> relationships,
+                                      String includedName,
+                                      List<Tuple> results,
+                                      Map<Entity, Entity> loaded) {
+
+        final Set<Entity> included = new LinkedHashSet<>();
 
         // Initialize the included relationship for all selected entities
         relationships.values().stream().forEach(map -> map.put(includedName, new ArrayList<>()));
 
-        for (Tuple result : typedQuery.getResultList()) {
+        for (Tuple result : results) {
             Object primaryIdValue = result.get("primaryId");
             Object includedIdValue = result.get("includedId");
 
@@ -629,10 +2538,52 @@ public class PersistenceController {
                   .subList(2, result.getElements().size())
                   .forEach(e -> includedAttributes.put(e.getAlias(), result.get(e)));
 
+            Entity entity = new Entity(includedMeta, includedIdValue, includedAttributes);
+            Entity previous = loaded.putIfAbsent(entity, entity);
+
+            if (previous != null) {
+                entity = previous;
+            }
+
+            included.add(entity);
             relationships.get(primaryIdValue)
                          .get(includedName)
-                         .add(new Entity(includedMeta, includedIdValue, includedAttributes));
+                         .add(entity);
+        }
+
+        return included;
+    }
+
+    /*
+     * Split the identifiers into chunks no larger than the largest IN-list
+     * size, padding each chunk to the nearest size by repeating its last
+     * identifier. The number of distinct SQL statements (and parameter counts)
+     * for IN-list queries is then bounded by the number of sizes rather than
+     * varying with every page size.
+     */
+    static List<List<Object>> chunkIds(Collection<Object> ids) {
+        final int maximum = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+        final List<Object> source = new ArrayList<>(ids);
+        final List<List<Object>> chunks = new ArrayList<>(source.size() / maximum + 1);
+
+        for (int start = 0; start < source.size(); start += maximum) {
+            final List<Object> chunk = new ArrayList<>(source.subList(start, Math.min(start + maximum, source.size())));
+            final Object last = chunk.get(chunk.size() - 1);
+            final int size = Arrays.stream(IN_LIST_SIZES).filter(s -> s >= chunk.size()).findFirst().orElse(maximum);
+
+            while (chunk.size() < size) {
+                chunk.add(last);
+            }
+
+            chunks.add(chunk);
         }
+
+        return chunks;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Expression<Collection<?>> idsParameter(CriteriaBuilder builder) {
+        return (Expression) builder.parameter(Collection.class, PARAM_IDS);
     }
 
     @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding missing generic types
@@ -688,7 +2639,7 @@ public class PersistenceController {
         return mappedBy;
     }
 
-    Map<Object, Map<String, List<Entity>>> initializeRelationships(List<Tuple> results, EntityMeta meta) {
+    Map<Object, Map<String, List<Entity>>> initializeRelationships(List<Entity> results, EntityMeta meta) {
 
         final Map<Object, Map<String, List<Entity>>> relationships = new HashMap<>();
         final Map<String, List<Entity>> prototype = meta.getRelationshipNames()
@@ -697,8 +2648,7 @@ public class PersistenceController {
                                                                                   name -> Entity.UNFETCHED_RELATIONSHIP));
 
         results.stream()
-               .map(result -> result.get("root"))
-               .map(meta::getIdValue)
+               .map(Entity::getId)
                .forEach(identifier -> relationships.put(identifier, new HashMap<>(prototype)));
 
         return relationships;
@@ -724,36 +2674,57 @@ public class PersistenceController {
         return singular;
     }
 
+    /*
+     * Unique set of related resources, including those related in turn to the
+     * included resources by multi-level include paths.
+     */
     Set<Entity> distinctRelated(Map<Object, Map<String, List<Entity>>> relationships) {
-        return relationships.values()
-                            .stream()
-                            .flatMap(map -> map.entrySet().stream())
-                            .flatMap(map -> map.getValue().stream())
-                            .collect(Collectors.toSet());
+        Set<Entity> related = relationships.values()
+                                           .stream()
+                                           .flatMap(map -> map.entrySet().stream())
+                                           .flatMap(map -> map.getValue().stream())
+                                           .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        List<Entity> pending = new ArrayList<>(related);
+
+        while (!pending.isEmpty()) {
+            pending = pending.stream()
+                             .flatMap(entity -> entity.getRelated().values().stream())
+                             .flatMap(List::stream)
+                             .filter(related::add)
+                             .collect(Collectors.toList());
+        }
+
+        return related;
     }
 
-    JsonArrayBuilder mapIncludedToJson(InternalQuery params, Set<Entity> included) {
+    JsonArrayBuilder mapIncludedToJson(InternalQuery params, Collection<Entity> included) {
         JsonArrayBuilder incl = Json.createArrayBuilder();
-        Map<String, Object> related = new TreeMap<>();
 
-        /*
-         * For each of the included resources related to the primary resource type,
-         * create the list of their own internal relationships and convert to JSON.
-         * */
         for (Entity includedEntity : included) {
-            related.clear();
-
-            includedEntity.getEntityMeta()
-                          .getEntityType()
-                          .getAttributes()
-                          .stream()
-                          .filter(Attribute::isAssociation)
-                          .forEach(relationship -> related.put(relationship.getName(), relationship));
-
-            incl.add(writer.toJson(includedEntity, related, params, params.getUriInfo()));
+            incl.add(includedToJson(params, includedEntity));
         }
 
         return incl;
     }
 
+    /*
+     * For each of the included resources related to the primary resource type,
+     * create the list of their own internal relationships and convert to JSON.
+     * */
+    JsonObject includedToJson(InternalQuery params, Entity includedEntity) {
+        Map<String, Object> related = new TreeMap<>();
+
+        includedEntity.getEntityMeta()
+                      .getEntityType()
+                      .getAttributes()
+                      .stream()
+                      .filter(Attribute::isAssociation)
+                      .forEach(relationship -> related.put(relationship.getName(), relationship));
+
+        related.putAll(includedEntity.getRelated());
+
+        return writer.toJson(includedEntity, related, params, params.getUriInfo());
+    }
+
 }
@@ -1,6 +1,7 @@
 package io.xlate.jsonapi.rvp.internal.persistence.entity;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -15,6 +16,7 @@ public class Entity {
 
     private final Object id;
     private final Map<String, Object> attributes;
+    private final Map<String, List<Entity>> related = new HashMap<>();
 
     public Entity(EntityMeta entityMeta, Object instance, Object id, Map<String, Object> attributes) {
         this.entityMeta = entityMeta;
@@ -50,6 +52,10 @@ public class Entity {
         return entityMeta;
     }
 
+    public Object getInstance() {
+        return instance;
+    }
+
     public String getType() {
         return entityMeta.getResourceType();
     }
@@ -81,6 +87,16 @@ public class Entity {
         throw new IllegalStateException("Entity instance has not been set");
     }
 
+    /**
+     * Resources related to this (included) resource that were themselves
+     * included using a multi-level include path, by relationship name.
+     *
+     * @return map of included related resources
+     */
+    public Map<String, List<Entity>> getRelated() {
+        return related;
+    }
+
     public Object getRelationship(String name) {
         if (!entityMeta.getRelationships().containsKey(name)) {
             throw new IllegalArgumentException("No such relationship: " + name);
@@ -1,9 +1,12 @@
 package io.xlate.jsonapi.rvp.internal.persistence.entity;
 
+import static java.util.function.Predicate.not;
+
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
@@ -11,15 +14,19 @@ import java.lang.reflect.Modifier;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import jakarta.json.JsonObject;
+import jakarta.persistence.Column;
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.Attribute.PersistentAttributeType;
 import jakarta.persistence.metamodel.Bindable;
@@ -28,16 +35,19 @@ import jakarta.persistence.metamodel.Metamodel;
 import jakarta.persistence.metamodel.PluralAttribute;
 import jakarta.persistence.metamodel.SingularAttribute;
 import jakarta.ws.rs.HttpMethod;
-import jakarta.ws.rs.core.Response.Status;
 
 import io.xlate.jsonapi.rvp.JsonApiResourceType;
-import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
+import io.xlate.jsonapi.rvp.JsonApiValidationMode;
+import io.xlate.jsonapi.rvp.internal.cache.entity.ExpiringCache;
 import io.xlate.jsonapi.rvp.internal.rs.boundary.ResourceObjectReader;
+import io.xlate.jsonapi.rvp.internal.rs.entity.LinkTemplate;
+import io.xlate.jsonapi.rvp.internal.rs.entity.SerializationPlan;
 
 @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding generic wildcards
 public class EntityMeta {
 
     private static final Logger LOGGER = Logger.getLogger(EntityMeta.class.getName());
+    private static final int QUERY_PLANS_MAXIMUM = 256;
 
     private static final Map<Class<?>, Class<?>> wrapperMap = Map.of(boolean.class,
                                                                      Boolean.class,
@@ -67,15 +77,29 @@ public class EntityMeta {
     private final Class<?> resourceClass;
     private final BeanInfo beanInfo;
     private final Map<String, PropertyDescriptor> propertyDescriptors;
+    private final Map<String, PropertyAccessor> propertyAccessors;
 
     private final EntityType<?> entityType;
     private final Set<String> methodsAllowed;
 
     private final Map<String, SingularAttribute<?, ?>> attributes;
     private final Map<String, Function<String, ? extends Object>> readers;
+    private final Set<String> nonUpdatableAttributes;
 
     private final Map<String, Attribute<?, ?>> relationships;
 
+    private final SingularAttribute<Object, ?> idAttribute;
+    private final SingularAttribute<Object, ?> exposedIdAttribute;
+    private final SingularAttribute<Object, ?> versionAttribute;
+
+    private final ExpiringCache<String, Object> queryPlans = new ExpiringCache<>(QUERY_PLANS_MAXIMUM);
+    private final Attribute<Object, ?>[] fetchedAttributes;
+    private final ExpiringCache<String, Long> totalCountCache;
+    private final ExpiringCache<String, JsonObject> resourceCache;
+    private final ExpiringCache<String, JsonObject> responseCache;
+    private final Map<String, LinkTemplate> linkTemplates = new ConcurrentHashMap<>();
+    private final SerializationPlan serializationPlan;
+
     public EntityMeta(Class<?> resourceClass,
             JsonApiResourceType<?> configuredType,
             Metamodel model,
@@ -110,6 +134,12 @@ public class EntityMeta {
                                  .map(this::readerEntry)
                                  .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
+        this.nonUpdatableAttributes = attributes.values()
+                                                .stream()
+                                                .filter(not(EntityMeta::updatable))
+                                                .map(Attribute::getName)
+                                                .collect(Collectors.toSet());
+
         this.relationships = entityType.getAttributes()
                                        .stream()
                                        .filter(Attribute::isAssociation)
@@ -121,6 +151,60 @@ public class EntityMeta {
         this.propertyDescriptors = Arrays.stream(beanInfo.getPropertyDescriptors())
                                          .collect(Collectors.toMap(PropertyDescriptor::getName,
                                                                    descriptor -> descriptor));
+
+        this.propertyAccessors = propertyAccessors(entityClass);
+        this.idAttribute = idAttribute();
+        this.exposedIdAttribute = exposedIdAttribute();
+        this.versionAttribute = versionAttribute();
+        this.serializationPlan = new SerializationPlan(this);
+        this.fetchedAttributes = fetchedAttributes(getEntityType());
+
+        if (configuredType.getTotalCountTimeToLive() != null) {
+            this.totalCountCache = new ExpiringCache<>(configuredType.getTotalCountTimeToLive(),
+                                                       configuredType.getTotalCountMaximumSize());
+        } else {
+            this.totalCountCache = null;
+        }
+
+        if (configuredType.getResourceCacheTimeToLive() != null) {
+            this.resourceCache = new ExpiringCache<>(configuredType.getResourceCacheTimeToLive(),
+                                                     configuredType.getResourceCacheMaximumSize());
+        } else {
+            this.resourceCache = null;
+        }
+
+        if (configuredType.getResponseCacheTimeToLive() != null) {
+            this.responseCache = new ExpiringCache<>(configuredType.getResponseCacheTimeToLive(),
+                                                     configuredType.getResponseCacheMaximumSize());
+        } else {
+            this.responseCache = null;
+        }
+    }
+
+    Map<String, PropertyAccessor> propertyAccessors(Class<?> entityClass) {
+        Map<String, PropertyAccessor> accessors = new HashMap<>();
+
+        propertyDescriptors.forEach((name, descriptor) ->
+            accessors.put(name, new PropertyAccessor(entityClass, descriptor, null)));
+
+        entityType.getAttributes().forEach(attribute -> {
+            String name = attribute.getName();
+            accessors.put(name, new PropertyAccessor(entityClass, propertyDescriptors.get(name), attribute.getJavaMember()));
+        });
+
+        return accessors;
+    }
+
+    static boolean updatable(Attribute<?, ?> attribute) {
+        final Column column;
+
+        if (attribute.getJavaMember() instanceof AnnotatedElement) {
+            column = ((AnnotatedElement) attribute.getJavaMember()).getAnnotation(Column.class);
+        } else {
+            column = null;
+        }
+
+        return column == null || column.updatable();
     }
 
     static boolean readerRequired(SingularAttribute<?, ?> attribute) {
@@ -220,8 +304,12 @@ public class EntityMeta {
         return getAttributes().containsKey(name) || getRelationships().containsKey(name);
     }
 
-    @SuppressWarnings("unchecked")
     public SingularAttribute<Object, ?> getExposedIdAttribute() {
+        return exposedIdAttribute;
+    }
+
+    @SuppressWarnings("unchecked")
+    SingularAttribute<Object, ?> exposedIdAttribute() {
         final SingularAttribute<?, ?> attr;
         final String attributeName = configuredType.getExposedIdAttribute();
 
@@ -242,6 +330,17 @@ public class EntityMeta {
         return attributes.keySet();
     }
 
+    /**
+     * Determine whether the attribute's column is included in SQL UPDATE
+     * statements, i.e. it is not mapped with `updatable = false`.
+     *
+     * @param attributeName name of the attribute
+     * @return false when the attribute's column may not be updated
+     */
+    public boolean isUpdatable(String attributeName) {
+        return !nonUpdatableAttributes.contains(attributeName);
+    }
+
     public Map<String, Function<String, ? extends Object>> getReaders() {
         return readers;
     }
@@ -258,12 +357,43 @@ public class EntityMeta {
         return configuredType.getIdReader().apply(value);
     }
 
-    @SuppressWarnings("unchecked")
     public SingularAttribute<Object, ?> getIdAttribute() {
+        return idAttribute;
+    }
+
+    @SuppressWarnings("unchecked")
+    SingularAttribute<Object, ?> idAttribute() {
         Class<?> type = entityType.getIdType().getJavaType();
         return (SingularAttribute<Object, ?>) entityType.getId(type);
     }
 
+    /**
+     * The attribute holding the version of the resource, either configured for
+     * the resource type or annotated with `@Version`.
+     *
+     * @return the version attribute, or null when the entity is not versioned
+     */
+    public SingularAttribute<Object, ?> getVersionAttribute() {
+        return versionAttribute;
+    }
+
+    @SuppressWarnings("unchecked")
+    SingularAttribute<Object, ?> versionAttribute() {
+        if (configuredType.getVersionAttribute() != null) {
+            return (SingularAttribute<Object, ?>) entityType.getSingularAttribute(configuredType.getVersionAttribute());
+        }
+
+        if (!entityType.hasVersionAttribute()) {
+            return null;
+        }
+
+        return (SingularAttribute<Object, ?>) entityType.getSingularAttributes()
+                                                        .stream()
+                                                        .filter(SingularAttribute::isVersion)
+                                                        .findFirst()
+                                                        .orElse(null);
+    }
+
     public Object getIdValue(Object bean) {
         return getPropertyValue(bean, getIdAttribute().getName());
     }
@@ -315,6 +445,93 @@ public class EntityMeta {
         return configuredType.getPrincipalNamePath();
     }
 
+    public boolean isStreaming() {
+        return configuredType.isStreaming();
+    }
+
+    public boolean isTotalCount() {
+        return configuredType.isTotalCount();
+    }
+
+    public ExpiringCache<String, Long> getTotalCountCache() {
+        return totalCountCache;
+    }
+
+    public boolean isConcurrentQueries() {
+        return configuredType.isConcurrentQueries();
+    }
+
+    public ExpiringCache<String, JsonObject> getResourceCache() {
+        return resourceCache;
+    }
+
+    public ExpiringCache<String, JsonObject> getResponseCache() {
+        return responseCache;
+    }
+
+    public boolean isVersionEntityTags() {
+        return configuredType.isVersionEntityTags() && getVersionAttribute() != null;
+    }
+
+    public boolean isUpdateWithoutLoad() {
+        return configuredType.isUpdateWithoutLoad();
+    }
+
+    public JsonApiValidationMode getValidationMode() {
+        return configuredType.getValidationMode();
+    }
+
+    /**
+     * Plans of the queries built for this entity type, keyed by the shape of
+     * the query rather than the values bound to its parameters. Plans hold
+     * criteria queries that are not modified once built, the cache is bounded
+     * so that client-driven shapes do not accumulate without limit.
+     *
+     * @return the cache of query plans
+     */
+    public ExpiringCache<String, Object> getQueryPlans() {
+        return queryPlans;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Attribute<Object, ?>[] fetchedAttributes(EntityType<Object> entityType) {
+        return entityType.getAttributes()
+                         .stream()
+                         .filter(not(Attribute::isAssociation))
+                         .toArray(Attribute[]::new);
+    }
+
+    /**
+     * The attributes of the entity type loaded when resources of the type are
+     * found individually, i.e. all attributes other than associations.
+     *
+     * @return the attribute nodes of the fetch graph
+     */
+    public Attribute<Object, ?>[] getFetchedAttributes() {
+        return fetchedAttributes.clone();
+    }
+
+    /**
+     * Link template of the named resource method, resolved from the resource
+     * class the first time it is requested.
+     *
+     * @param methodName name of the resource method, e.g. `read`
+     * @return the link template for the method
+     */
+    public LinkTemplate getLinkTemplate(String methodName) {
+        return linkTemplates.computeIfAbsent(methodName, name -> new LinkTemplate(resourceClass, name));
+    }
+
+    /**
+     * Attributes of this type in the order they are serialized, each with a
+     * writer selected for the attribute's Java type.
+     *
+     * @return the serialization plan for this type
+     */
+    public SerializationPlan getSerializationPlan() {
+        return serializationPlan;
+    }
+
     public PropertyDescriptor getPropertyDescriptor(String name) {
         PropertyDescriptor descriptor = propertyDescriptors.get(name);
 
@@ -325,25 +542,22 @@ public class EntityMeta {
         throw new NoSuchElementException(name);
     }
 
-    @SuppressWarnings("unchecked")
-    public <T> T getPropertyValue(Object bean, String name) {
-        PropertyDescriptor descriptor = getPropertyDescriptor(name);
+    PropertyAccessor getPropertyAccessor(String name) {
+        PropertyAccessor accessor = propertyAccessors.get(name);
 
-        try {
-            return (T) descriptor.getReadMethod().invoke(bean);
-        } catch (Exception e) {
-            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to read property");
+        if (accessor != null) {
+            return accessor;
         }
+
+        throw new NoSuchElementException(name);
     }
 
-    public <T> void setPropertyValue(Object bean, String name, T value) {
-        PropertyDescriptor descriptor = getPropertyDescriptor(name);
+    public <T> T getPropertyValue(Object bean, String name) {
+        return getPropertyAccessor(name).get(bean);
+    }
 
-        try {
-            descriptor.getWriteMethod().invoke(bean, value);
-        } catch (Exception e) {
-            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to update property");
-        }
+    public <T> void setPropertyValue(Object bean, String name, T value) {
+        getPropertyAccessor(name).set(bean, value);
     }
 
     public Set<String> getUniqueTuple(String name) {
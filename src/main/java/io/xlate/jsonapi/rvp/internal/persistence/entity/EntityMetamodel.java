@@ -1,23 +1,131 @@
 package io.xlate.jsonapi.rvp.internal.persistence.entity;
 
+import java.net.URI;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.metamodel.Metamodel;
 
+import io.xlate.jsonapi.rvp.JsonApiHandler;
 import io.xlate.jsonapi.rvp.JsonApiResourceType;
+import io.xlate.jsonapi.rvp.internal.cache.entity.ExpiringCache;
+import io.xlate.jsonapi.rvp.internal.rs.entity.ClientModule;
 
 public class EntityMetamodel {
 
+    /*
+     * Models are held by the resource class (rather than a static map) so
+     * that they do not outlive the application's class loader.
+     */
+    private static final ClassValue<Map<EntityManagerFactory, EntityMetamodel>> instances = new ClassValue<>() {
+        @Override
+        protected Map<EntityManagerFactory, EntityMetamodel> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final int CLIENT_MODULES_MAXIMUM = 16;
+
+    private final Set<JsonApiResourceType<?>> resourceTypes;
+    private final Metamodel model;
     private final Map<Class<?>, EntityMeta> classMetaMap;
     private final Map<String, EntityMeta> typeMetaMap;
+    private final ClassValue<Optional<EntityMeta>> classMetaValue = new ClassValue<>() {
+        @Override
+        protected Optional<EntityMeta> computeValue(Class<?> type) {
+            return resolveEntityMeta(type);
+        }
+    };
+    private final Map<String, JsonApiHandler<?>> handlers = new ConcurrentHashMap<>();
+    private final ExpiringCache<URI, ClientModule> clientModules = new ExpiringCache<>(CLIENT_MODULES_MAXIMUM);
+
+    /**
+     * Obtain the model for a resource class. The model created by an earlier
+     * request is reused when it was built for the same persistence unit
+     * (EntityManagerFactory) and resource types with the same configuration,
+     * retaining state such as cached totals that is shared between requests.
+     * Models of persistence units that have since been closed are discarded.
+     *
+     * @param resourceClass the JAX-RS resource class
+     * @param resourceTypes resource types exposed by the resource class
+     * @param factory the EntityManagerFactory of the persistence unit
+     * @return the entity model for the resource class
+     */
+    public static EntityMetamodel getInstance(Class<?> resourceClass,
+                                              Set<JsonApiResourceType<?>> resourceTypes,
+                                              EntityManagerFactory factory) {
+
+        final Map<EntityManagerFactory, EntityMetamodel> models = instances.get(resourceClass);
+        models.keySet().removeIf(key -> !key.isOpen());
+
+        return models.compute(factory, (key, existing) -> {
+            if (existing != null && existing.isDefinedBy(resourceTypes)) {
+                return existing;
+            }
+            return new EntityMetamodel(resourceClass, resourceTypes, key.getMetamodel());
+        });
+    }
+
+    /*
+     * Resource types are equal by name alone, each type must also match the
+     * configuration of the type of the same name used to build this model.
+     * Functions (readers) are compared by identity.
+     */
+    boolean isDefinedBy(Set<JsonApiResourceType<?>> otherTypes) {
+        if (otherTypes.size() != resourceTypes.size()) {
+            return false;
+        }
+
+        final Map<String, JsonApiResourceType<?>> definedTypes = resourceTypes.stream()
+                                                                              .collect(Collectors.toMap(JsonApiResourceType::getName,
+                                                                                                        Function.identity()));
+
+        return otherTypes.stream().allMatch(type -> isSameConfiguration(definedTypes.get(type.getName()), type));
+    }
+
+    static boolean isSameConfiguration(JsonApiResourceType<?> defined, JsonApiResourceType<?> other) {
+        if (defined == other) {
+            return true;
+        }
+
+        return defined != null
+                && defined.getResourceClass() == other.getResourceClass()
+                && defined.getMethods().equals(other.getMethods())
+                && defined.getAttributes().equals(other.getAttributes())
+                && defined.getReaders().equals(other.getReaders())
+                && defined.getRelationships().equals(other.getRelationships())
+                && defined.getUniqueTuples().equals(other.getUniqueTuples())
+                && Objects.equals(defined.getExposedIdAttribute(), other.getExposedIdAttribute())
+                && defined.getIdReader() == other.getIdReader()
+                && Objects.equals(defined.getPrincipalNamePath(), other.getPrincipalNamePath())
+                && defined.isStreaming() == other.isStreaming()
+                && defined.isTotalCount() == other.isTotalCount()
+                && Objects.equals(defined.getTotalCountTimeToLive(), other.getTotalCountTimeToLive())
+                && defined.getTotalCountMaximumSize() == other.getTotalCountMaximumSize()
+                && defined.isConcurrentQueries() == other.isConcurrentQueries()
+                && Objects.equals(defined.getResourceCacheTimeToLive(), other.getResourceCacheTimeToLive())
+                && defined.getResourceCacheMaximumSize() == other.getResourceCacheMaximumSize()
+                && Objects.equals(defined.getResponseCacheTimeToLive(), other.getResponseCacheTimeToLive())
+                && defined.getResponseCacheMaximumSize() == other.getResponseCacheMaximumSize()
+                && Objects.equals(defined.getVersionAttribute(), other.getVersionAttribute())
+                && defined.isVersionEntityTags() == other.isVersionEntityTags()
+                && defined.isUpdateWithoutLoad() == other.isUpdateWithoutLoad()
+                && defined.getValidationMode() == other.getValidationMode();
+    }
 
     public EntityMetamodel(Class<?> resourceClass,
             Set<JsonApiResourceType<?>> resourceTypes,
             Metamodel model) {
 
+        this.resourceTypes = Set.copyOf(resourceTypes);
+        this.model = model;
         classMetaMap = new HashMap<>(resourceTypes.size());
         typeMetaMap = new HashMap<>(resourceTypes.size());
 
@@ -33,21 +141,58 @@ public class EntityMetamodel {
         }
     }
 
+    public Collection<EntityMeta> getEntityMetas() {
+        return typeMetaMap.values();
+    }
+
+    /**
+     * Handlers resolved for the resource types of this model, keyed by the
+     * resource type and HTTP method. Shared by all requests using the model.
+     *
+     * @return the map of resolved handlers
+     */
+    @SuppressWarnings("java:S1452") // Suppress Sonar warnings regarding generic wildcards
+    public Map<String, JsonApiHandler<?>> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Client modules rendered for the resource class of this model, keyed by
+     * the base URI of the requests they were rendered for.
+     *
+     * @return the cache of client modules
+     */
+    public ExpiringCache<URI, ClientModule> getClientModules() {
+        return clientModules;
+    }
+
     public EntityMeta getEntityMeta(String resourceType) {
         return typeMetaMap.get(resourceType);
     }
 
     public EntityMeta getEntityMeta(Class<?> entityClass) {
-        if (!classMetaMap.containsKey(entityClass)) {
-            // Deal with JPA proxy classes. Find alternate and add new cross reference
-            classMetaMap.keySet()
-                        .stream()
-                        .filter(candidate -> candidate.isAssignableFrom(entityClass))
-                        .findFirst()
-                        .ifPresent(alternate -> classMetaMap.put(entityClass, classMetaMap.get(alternate)));
+        if (entityClass == null) {
+            return null;
+        }
+
+        return classMetaValue.get(entityClass).orElse(null);
+    }
+
+    /*
+     * Resolve the entity class, or for JPA proxy classes the nearest mapped
+     * superclass, to its metadata. Called at most once per class by the
+     * ClassValue.
+     */
+    Optional<EntityMeta> resolveEntityMeta(Class<?> entityClass) {
+        for (Class<?> candidate = entityClass; candidate != null; candidate = candidate.getSuperclass()) {
+            EntityMeta meta = classMetaMap.get(candidate);
+
+            if (meta != null) {
+                return Optional.of(meta);
+            }
         }
 
-        return classMetaMap.get(entityClass);
+        return Optional.empty();
     }
 
 }
@@ -0,0 +1,116 @@
+package io.xlate.jsonapi.rvp.internal.persistence.entity;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import jakarta.ws.rs.core.Response.Status;
+
+import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
+
+/**
+ * Reads and writes a single property of an entity class through method handles
+ * resolved once when the {@link EntityMeta} is created. The property's
+ * accessor methods are used whenever the entity class declares them, so that
+ * lazy-loading proxies and bytecode-enhanced entities observe every read and
+ * write. The field mapped by the JPA provider is accessed directly only for a
+ * property without an accessor method.
+ */
+class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    PropertyAccessor(Class<?> entityClass, PropertyDescriptor descriptor, Member member) {
+        final MethodHandles.Lookup lookup = lookup(entityClass);
+        final Method readMethod = descriptor != null ? descriptor.getReadMethod() : null;
+        final Method writeMethod = descriptor != null ? descriptor.getWriteMethod() : null;
+        final Field field = member instanceof Field && !Modifier.isStatic(member.getModifiers()) ? (Field) member : null;
+
+        if (readMethod != null) {
+            this.getter = unreflect(lookup, readMethod, GETTER_TYPE);
+        } else if (field != null) {
+            this.getter = unreflectGetter(lookup(field.getDeclaringClass()), field);
+        } else {
+            this.getter = null;
+        }
+
+        if (writeMethod != null) {
+            this.setter = unreflect(lookup, writeMethod, SETTER_TYPE);
+        } else if (field != null && !Modifier.isFinal(field.getModifiers())) {
+            this.setter = unreflectSetter(lookup(field.getDeclaringClass()), field);
+        } else {
+            this.setter = null;
+        }
+    }
+
+    static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            return MethodHandles.publicLookup();
+        }
+    }
+
+    static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method, MethodType type) {
+        try {
+            return lookup.unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access property method: " + method, e);
+        }
+    }
+
+    static MethodHandle unreflectGetter(MethodHandles.Lookup lookup, Field field) {
+        try {
+            return lookup.unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access property field: " + field, e);
+        }
+    }
+
+    static MethodHandle unreflectSetter(MethodHandles.Lookup lookup, Field field) {
+        try {
+            return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access property field: " + field, e);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "java:S1181" }) // Method handles declare Throwable
+    <T> T get(Object bean) {
+        if (getter == null) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to read property");
+        }
+
+        try {
+            return (T) getter.invokeExact(bean);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to read property", e);
+        }
+    }
+
+    @SuppressWarnings("java:S1181") // Method handles declare Throwable
+    void set(Object bean, Object value) {
+        if (setter == null) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to update property");
+        }
+
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unable to update property", e);
+        }
+    }
+}
@@ -5,11 +5,15 @@ import static io.xlate.jsonapi.rvp.internal.rs.entity.JsonApiError.relationshipP
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -25,6 +29,7 @@ import jakarta.json.JsonValue.ValueType;
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.Bindable;
 import jakarta.persistence.metamodel.EntityType;
+import jakarta.ws.rs.HttpMethod;
 
 import io.xlate.jsonapi.rvp.JsonApiStatus;
 import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
@@ -103,6 +108,7 @@ public class ResourceObjectReader {
                            EntityType<Object> rootType) {
 
         JsonObject relationships = data.getJsonObject("relationships");
+        Map<String, Map<String, Object>> related = findRelated(persistence, context, relationships);
         JsonArrayBuilder errors = Json.createArrayBuilder();
 
         for (Entry<String, JsonValue> entry : relationships.entrySet()) {
@@ -111,9 +117,9 @@ public class ResourceObjectReader {
 
             // Validation already completed in JsonApiRequestValidator
             if (rootType.getAttribute(fieldName).isCollection()) {
-                readRelationshipArray(persistence, context, entity, fieldName, relationshipData.asJsonArray(), errors);
+                readRelationshipArray(related, context, entity, fieldName, relationshipData.asJsonArray(), errors);
             } else {
-                readRelationshipObject(persistence, context, entity, fieldName, relationshipData, errors);
+                readRelationshipObject(related, entity, fieldName, relationshipData, errors);
             }
         }
 
@@ -124,7 +130,41 @@ public class ResourceObjectReader {
         }
     }
 
-    void readRelationshipArray(PersistenceController persistence,
+    /**
+     * Load the resources identified by all relationships of the document,
+     * grouped by resource type so that each type is resolved using a single
+     * (chunked) query regardless of the number of identifiers.
+     *
+     * @return map of resources keyed by resource type and identifier
+     */
+    Map<String, Map<String, Object>> findRelated(PersistenceController persistence,
+                                                 InternalContext context,
+                                                 JsonObject relationships) {
+
+        Map<String, Set<String>> identifiers = new HashMap<>();
+        Consumer<JsonValue> collector = resourceId -> {
+            JsonObject identifier = resourceId.asJsonObject();
+            identifiers.computeIfAbsent(identifier.getString("type"), k -> new LinkedHashSet<>())
+                       .add(identifier.getString("id"));
+        };
+
+        for (JsonValue relationship : relationships.values()) {
+            JsonValue relationshipData = relationship.asJsonObject().get("data");
+
+            if (relationshipData.getValueType() == ValueType.ARRAY) {
+                relationshipData.asJsonArray().forEach(collector);
+            } else if (relationshipData.getValueType() == ValueType.OBJECT) {
+                collector.accept(relationshipData);
+            }
+        }
+
+        Map<String, Map<String, Object>> related = new HashMap<>(identifiers.size());
+        identifiers.forEach((type, ids) -> related.put(type, persistence.findObjects(context, type, ids)));
+
+        return related;
+    }
+
+    void readRelationshipArray(Map<String, Map<String, Object>> related,
                                InternalContext context,
                                Object entity,
                                String fieldName,
@@ -133,15 +173,18 @@ public class ResourceObjectReader {
 
         Collection<Object> replacements = relationshipData.stream()
                         .map(JsonValue::asJsonObject)
-                        .map(entry -> findReplacement(persistence, context, entry, fieldName, errors))
+                        .map(entry -> findReplacement(related, entry, fieldName, errors))
                         .filter(Objects::nonNull)
                         .collect(Collectors.toList());
 
-        putPluralRelationship(entity, model.getEntityMeta(entity.getClass()), fieldName, replacements);
+        putPluralRelationship(entity,
+                              model.getEntityMeta(entity.getClass()),
+                              fieldName,
+                              replacements,
+                              RelationshipUpdate.of(context));
     }
 
-    void readRelationshipObject(PersistenceController persistence,
-                                InternalContext context,
+    void readRelationshipObject(Map<String, Map<String, Object>> related,
                                 Object entity,
                                 String fieldName,
                                 JsonValue relationshipData,
@@ -152,7 +195,7 @@ public class ResourceObjectReader {
         if (relationshipData.getValueType() == ValueType.NULL) {
             replacement = null;
         } else {
-            replacement = findReplacement(persistence, context, relationshipData.asJsonObject(), fieldName, errors);
+            replacement = findReplacement(related, relationshipData.asJsonObject(), fieldName, errors);
 
             if (replacement == null) {
                 return;
@@ -162,22 +205,25 @@ public class ResourceObjectReader {
         putSingularRelationship(entity, model.getEntityMeta(entity.getClass()), fieldName, replacement);
     }
 
-    Object findReplacement(PersistenceController persistence, InternalContext context, JsonObject resourceId, String fieldName, JsonArrayBuilder errors) {
+    Object findReplacement(Map<String, Map<String, Object>> related, JsonObject resourceId, String fieldName, JsonArrayBuilder errors) {
         final String type = resourceId.getString("type");
         final String id = resourceId.getString("id");
-        final Object replacement = persistence.findObject(context, type, id);
+        final Object replacement = related.getOrDefault(type, Collections.emptyMap()).get(id);
 
         if (replacement == null) {
-            var error = new JsonApiError("Invalid relationship",
-                                         String.format("Resource not found => type: `%s`, id: `%s`", type, id),
-                                         JsonApiError.Source.forPointer(relationshipPointer(fieldName)));
-
-            errors.add(error.toJson());
+            errors.add(relationshipNotFound(fieldName, type, id));
         }
 
         return replacement;
     }
 
+    public static JsonObject relationshipNotFound(String fieldName, String type, String id) {
+        return new JsonApiError("Invalid relationship",
+                                String.format("Resource not found => type: `%s`, id: `%s`", type, id),
+                                JsonApiError.Source.forPointer(relationshipPointer(fieldName)))
+                .toJson();
+    }
+
     void readAttributes(Object bean, JsonObject attributes) {
         EntityMeta meta = model.getEntityMeta(bean.getClass());
         attributes.entrySet().forEach(a -> readAttribute(a, bean, meta));
@@ -185,7 +231,10 @@ public class ResourceObjectReader {
 
     void readAttribute(Entry<String, JsonValue> attribute, Object bean, EntityMeta meta) {
         String jsonKey = attribute.getKey();
-        JsonValue jsonValue = attribute.getValue();
+        meta.setPropertyValue(bean, jsonKey, readValue(meta, jsonKey, attribute.getValue()));
+    }
+
+    public Object readValue(EntityMeta meta, String jsonKey, JsonValue jsonValue) {
         Class<?> propertyType = meta.getPropertyDescriptor(jsonKey).getPropertyType();
         ValueType jsonValueType = jsonValue.getValueType();
         Object value;
@@ -206,26 +255,70 @@ public class ResourceObjectReader {
             value = null;
         }
 
-        meta.setPropertyValue(bean, jsonKey, value);
+        return value;
+    }
+
+    /**
+     * Read an attribute (or the exposed identifier) given in its string form,
+     * e.g. the value of a filter in the request URI, as the type of the
+     * entity's property.
+     *
+     * @param meta the entity type
+     * @param key name of the attribute or exposed identifier
+     * @param value string form of the value
+     * @return the value converted to the type of the property
+     * @throws IllegalArgumentException when the value can not be converted
+     */
+    public Object readValue(EntityMeta meta, String key, String value) {
+        if (meta.getExposedIdAttribute().getName().equals(key)) {
+            return meta.readId(value);
+        }
+
+        Class<?> propertyType = meta.getPropertyDescriptor(key).getPropertyType();
+        Object result;
+
+        if (classMatch(propertyType, Boolean.class, Boolean.TYPE)) {
+            if (!"true".equals(value) && !"false".equals(value)) {
+                throw new IllegalArgumentException("Not a boolean: " + value);
+            }
+            result = Boolean.valueOf(value);
+        } else if (Number.class.isAssignableFrom(propertyType) || propertyType.isPrimitive()) {
+            result = readValue(meta, key, Json.createValue(new BigDecimal(value)));
+        } else if (meta.getReaders().containsKey(key)) {
+            result = readValue(meta, key, Json.createValue(value));
+        } else {
+            result = value;
+        }
+
+        return result;
     }
 
     boolean classMatch(Class<?> propertyType, Class<?> wrapper, Class<?> primitive) {
         return propertyType.equals(wrapper) || primitive.equals(propertyType);
     }
 
-    void putPluralRelationship(Object bean, EntityMeta meta, String relationshipName, Collection<Object> values) {
+    void putPluralRelationship(Object bean,
+                               EntityMeta meta,
+                               String relationshipName,
+                               Collection<Object> values,
+                               RelationshipUpdate update) {
+
         Collection<Object> current = meta.getPropertyValue(bean, relationshipName);
         Iterator<Object> cursor = current.iterator();
 
-        while (cursor.hasNext()) {
+        while (update != RelationshipUpdate.ADD && cursor.hasNext()) {
             Object related = cursor.next();
 
-            if (!values.contains(related)) {
+            if (values.contains(related) == (update == RelationshipUpdate.REMOVE)) {
                 cursor.remove();
                 updateRelated(related, bean, RelatedModelAction.REMOVE);
             }
         }
 
+        if (update == RelationshipUpdate.REMOVE) {
+            return;
+        }
+
         for (Object related : values) {
             if (!current.contains(related)) {
                 current.add(related);
@@ -304,4 +397,31 @@ public class ResourceObjectReader {
         REMOVE;
     }
 
+    /**
+     * How the members of a to-many relationship given in a request are
+     * applied. Requests targeting a relationship add (POST) or remove
+     * (DELETE) the given members, all others replace the relationship's
+     * members.
+     */
+    enum RelationshipUpdate {
+        REPLACE,
+        ADD,
+        REMOVE;
+
+        static RelationshipUpdate of(InternalContext context) {
+            if (context.getRelationshipName() != null) {
+                switch (context.getRequest().getMethod()) {
+                case HttpMethod.POST:
+                    return ADD;
+                case HttpMethod.DELETE:
+                    return REMOVE;
+                default:
+                    break;
+                }
+            }
+
+            return REPLACE;
+        }
+    }
+
 }
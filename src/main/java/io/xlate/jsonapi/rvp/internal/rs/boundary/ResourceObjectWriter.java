@@ -1,14 +1,7 @@
 package io.xlate.jsonapi.rvp.internal.rs.boundary;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.net.URI;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -22,13 +15,13 @@ import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonValue;
 import jakarta.persistence.metamodel.Attribute;
-import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
 
 import io.xlate.jsonapi.rvp.internal.persistence.entity.Entity;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalQuery;
+import io.xlate.jsonapi.rvp.internal.rs.entity.SerializationPlan;
 
 public class ResourceObjectWriter {
 
@@ -120,44 +113,11 @@ public class ResourceObjectWriter {
     }
 
     public JsonObject getAttributes(InternalQuery params, Entity bean) {
-        JsonObjectBuilder attributes = Json.createObjectBuilder();
-
-        bean.getEntityMeta()
-            .getAttributeNames()
-            .stream()
-            .filter(name -> params == null || params.includeField(bean.getType(), name))
-            .sorted()
-            .forEach(key -> {
-                Object value = bean.getAttribute(key);
-
-                if (value == null) {
-                    attributes.addNull(key);
-                } else if (Date.class.isAssignableFrom(value.getClass())) {
-                    OffsetDateTime odt = ((Date) value).toInstant().atOffset(ZoneOffset.UTC);
-                    attributes.add(key, odt.format(DateTimeFormatter.ISO_DATE_TIME));
-                } else if (OffsetDateTime.class.isAssignableFrom(value.getClass())) {
-                    OffsetDateTime odt = ((OffsetDateTime) value).toInstant().atOffset(ZoneOffset.UTC);
-                    attributes.add(key, odt.format(DateTimeFormatter.ISO_DATE_TIME));
-                } else if (Boolean.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (Boolean) value);
-                } else if (BigDecimal.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (BigDecimal) value);
-                } else if (BigInteger.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (BigInteger) value);
-                } else if (Long.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (Long) value);
-                } else if (Integer.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (Integer) value);
-                } else if (Double.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (Double) value);
-                } else if (Float.class.isAssignableFrom(value.getClass())) {
-                    attributes.add(key, (Float) value);
-                } else {
-                    attributes.add(key, String.valueOf(value));
-                }
-            });
-
-        return attributes.build();
+        return bean.getEntityMeta().getSerializationPlan().write(params, bean);
+    }
+
+    public static JsonValue toJsonValue(Object value) {
+        return SerializationPlan.toJsonValue(value);
     }
 
     JsonObject getRelationships(Entity bean,
@@ -317,13 +277,7 @@ public class ResourceObjectWriter {
                       EntityMeta meta,
                       Object... params) {
 
-        UriBuilder self = uriInfo.getBaseUriBuilder();
-        Class<?> resourceClass = meta.getResourceClass();
-        self.path(resourceClass);
-        self.path(resourceClass, methodName);
-
-        final URI link = self.build(params);
-
-        builder.add(linkName, link.toString());
+        final String link = meta.getLinkTemplate(methodName).expand(uriInfo.getBaseUri().toString(), params);
+        builder.add(linkName, link);
     }
 }
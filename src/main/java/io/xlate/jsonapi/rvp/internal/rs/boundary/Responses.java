@@ -7,6 +7,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -16,14 +17,17 @@ import jakarta.json.JsonArray;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ElementKind;
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
 import jakarta.ws.rs.core.Response.StatusType;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
 
@@ -51,9 +55,18 @@ public class Responses {
     }
 
     public static void ok(InternalContext context, CacheControl cacheControl, JsonObject entity) {
-        EntityTag etag = new EntityTag(Integer.toString(entity.hashCode()));
-        ResponseBuilder builder;
-        builder = context.getRequest().evaluatePreconditions(etag);
+        EntityTag etag = context.getEntityTag();
+
+        if (etag == null) {
+            etag = new EntityTag(Integer.toString(entity.hashCode()));
+        }
+
+        ResponseBuilder builder = null;
+
+        if (HttpMethod.GET.equals(context.getRequest().getMethod()) || context.getEntityTag() == null) {
+            // `If-Match` of a write was already evaluated against the version before the resource was modified
+            builder = context.getRequest().evaluatePreconditions(etag);
+        }
 
         if (builder == null) {
             builder = Response.ok(entity);
@@ -64,6 +77,17 @@ public class Responses {
         context.setResponseBuilder(builder);
     }
 
+    public static void notModified(InternalContext context, CacheControl cacheControl, ResponseBuilder builder) {
+        builder.cacheControl(cacheControl);
+        context.setResponseBuilder(builder);
+    }
+
+    public static void ok(InternalContext context, CacheControl cacheControl, StreamingOutput entity) {
+        ResponseBuilder builder = Response.ok(entity);
+        builder.cacheControl(cacheControl);
+        context.setResponseBuilder(builder);
+    }
+
     public static void created(InternalContext context, Class<?> resource, JsonObject entity) {
         ResponseBuilder builder = Response.created(getUri(context.getUriInfo(),
                                                           resource,
@@ -181,6 +205,72 @@ public class Responses {
                       + "Please try again later.");
     }
 
+    /**
+     * Build the response of an atomic operations request where one of the
+     * operations failed, using the errors of the failed operation with each
+     * error's source pointer translated to the operation's position in the
+     * atomic operations document.
+     *
+     * @param failed the response of the failed operation
+     * @param pointers translates pointers into the operation's equivalent request document
+     * @return the response for the atomic operations request
+     */
+    public static Response operationFailed(Response failed, UnaryOperator<String> pointers) {
+        JsonArrayBuilder errors = Json.createArrayBuilder();
+
+        if (failed.getEntity() instanceof JsonObject
+                && ((JsonObject) failed.getEntity()).get("errors") instanceof JsonArray) {
+
+            for (JsonValue error : ((JsonObject) failed.getEntity()).getJsonArray("errors")) {
+                JsonObject source = error.asJsonObject().getJsonObject("source");
+                String pointer = source != null ? source.getString("pointer", null) : null;
+                JsonObjectBuilder sourceBuilder = source != null ? Json.createObjectBuilder(source) : Json.createObjectBuilder();
+
+                errors.add(Json.createObjectBuilder(error.asJsonObject())
+                               .add("source", sourceBuilder.add("pointer", pointers.apply(pointer))));
+            }
+        } else {
+            JsonApiError error = new JsonApiError(failed.getStatusInfo(),
+                                                  failed.getStatusInfo().getReasonPhrase(),
+                                                  JsonApiError.Source.forPointer(pointers.apply(null)));
+            errors.add(error.toJson());
+        }
+
+        return Response.status(failed.getStatusInfo()).entity(errorsObject(errors).build()).build();
+    }
+
+    /**
+     * Translate the source pointers of the errors in a response, e.g. when the
+     * request document was processed as an equivalent document of another
+     * structure. Errors without a pointer are left as-is.
+     *
+     * @param response the error response
+     * @param pointers translates pointers into the equivalent request document
+     * @return a copy of the response with the translated errors
+     */
+    public static Response translatePointers(Response response, UnaryOperator<String> pointers) {
+        if (!(response.getEntity() instanceof JsonObject)
+                || !(((JsonObject) response.getEntity()).get("errors") instanceof JsonArray)) {
+            return response;
+        }
+
+        JsonArrayBuilder errors = Json.createArrayBuilder();
+
+        for (JsonValue error : ((JsonObject) response.getEntity()).getJsonArray("errors")) {
+            JsonObject source = error.asJsonObject().getJsonObject("source");
+
+            if (source != null && source.containsKey("pointer")) {
+                String pointer = pointers.apply(source.getString("pointer"));
+                errors.add(Json.createObjectBuilder(error.asJsonObject())
+                               .add("source", Json.createObjectBuilder(source).add("pointer", pointer)));
+            } else {
+                errors.add(error);
+            }
+        }
+
+        return Response.fromResponse(response).entity(errorsObject(errors).build()).build();
+    }
+
     public static ResponseBuilder notImplemented() {
         return Response.status(Status.NOT_IMPLEMENTED);
     }
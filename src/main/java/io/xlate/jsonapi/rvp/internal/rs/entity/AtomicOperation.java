@@ -0,0 +1,396 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.core.Response.Status;
+
+import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
+
+/**
+ * A single operation of a JSON:API atomic operations document
+ * (`ext="https://jsonapi.org/ext/atomic"`). Each operation is processed as the
+ * equivalent single-resource (or relationship) request, with local
+ * identifiers (`lid`) of resources added by earlier operations replaced by the
+ * identifiers assigned to them.
+ */
+public class AtomicOperation {
+
+    public static final String KEY_OPERATIONS = "atomic:operations";
+    public static final String KEY_RESULTS = "atomic:results";
+
+    static final String KEY_OP = "op";
+    static final String KEY_REF = "ref";
+    static final String KEY_HREF = "href";
+    static final String KEY_DATA = "data";
+    static final String KEY_TYPE = "type";
+    static final String KEY_ID = "id";
+    static final String KEY_LID = "lid";
+    static final String KEY_RELATIONSHIP = "relationship";
+    static final String KEY_RELATIONSHIPS = "relationships";
+
+    static final String OP_ADD = "add";
+    static final String OP_UPDATE = "update";
+    static final String OP_REMOVE = "remove";
+
+    private final int index;
+    private final String op;
+    private final JsonObject target;
+    private final String relationship;
+    private final JsonValue data;
+
+    AtomicOperation(int index, String op, JsonObject target, String relationship, JsonValue data) {
+        this.index = index;
+        this.op = op;
+        this.target = target;
+        this.relationship = relationship;
+        this.data = data;
+    }
+
+    /**
+     * Parse the operations of an atomic operations document, verifying the
+     * structure of each operation.
+     *
+     * @param document the request document
+     * @return the operations in the order given
+     * @throws JsonApiErrorException (400) when the document is malformed
+     */
+    public static List<AtomicOperation> parse(JsonObject document) {
+        final JsonValue operations = document != null ? document.get(KEY_OPERATIONS) : null;
+        final JsonArrayBuilder errors = Json.createArrayBuilder();
+        final List<AtomicOperation> result = new ArrayList<>();
+
+        if (operations == null || operations.getValueType() != ValueType.ARRAY || operations.asJsonArray().isEmpty()) {
+            errors.add(error("An atomic operations document MUST contain a non-empty `atomic:operations` array",
+                             '/' + KEY_OPERATIONS));
+        } else {
+            JsonArray entries = operations.asJsonArray();
+
+            for (int i = 0; i < entries.size(); i++) {
+                AtomicOperation operation = parse(i, entries.get(i), errors);
+
+                if (operation != null) {
+                    result.add(operation);
+                }
+            }
+        }
+
+        JsonArray errorsArray = errors.build();
+
+        if (!errorsArray.isEmpty()) {
+            throw new JsonApiErrorException(Status.BAD_REQUEST, errorsArray);
+        }
+
+        return result;
+    }
+
+    static AtomicOperation parse(int index, JsonValue entry, JsonArrayBuilder errors) {
+        final String pointer = pointer(index);
+
+        if (entry.getValueType() != ValueType.OBJECT) {
+            errors.add(error("An operation MUST be an object", pointer));
+            return null;
+        }
+
+        final JsonObject operation = entry.asJsonObject();
+        final String op = getString(operation, KEY_OP);
+        final JsonValue data = operation.get(KEY_DATA);
+
+        if (!OP_ADD.equals(op) && !OP_UPDATE.equals(op) && !OP_REMOVE.equals(op)) {
+            errors.add(error("The `op` member MUST be one of `add`, `update` or `remove`", pointer + "/op"));
+            return null;
+        }
+
+        if (operation.containsKey(KEY_HREF)) {
+            errors.add(error("The `href` member is not supported, use `ref`", pointer + "/href"));
+            return null;
+        }
+
+        if (operation.containsKey(KEY_REF)) {
+            return parseReference(index, op, operation.get(KEY_REF), data, errors);
+        }
+
+        if (OP_REMOVE.equals(op)) {
+            errors.add(error("A `remove` operation MUST contain a `ref` member", pointer));
+            return null;
+        }
+
+        if (data == null || data.getValueType() != ValueType.OBJECT) {
+            errors.add(error("The `data` member MUST be a resource object", pointer + "/data"));
+            return null;
+        }
+
+        JsonObject resource = data.asJsonObject();
+
+        if (!validTarget(resource, OP_ADD.equals(op))) {
+            errors.add(error("The resource object MUST contain a `type` and "
+                    + (OP_ADD.equals(op) ? "may contain an `id` or `lid`" : "an `id` or `lid`"), pointer + "/data"));
+            return null;
+        }
+
+        return new AtomicOperation(index, op, resource, null, data);
+    }
+
+    static AtomicOperation parseReference(int index, String op, JsonValue ref, JsonValue data, JsonArrayBuilder errors) {
+        final String pointer = pointer(index);
+
+        if (ref.getValueType() != ValueType.OBJECT || !validTarget(ref.asJsonObject(), false)) {
+            errors.add(error("The `ref` member MUST be an object containing a `type` and an `id` or `lid`",
+                             pointer + "/ref"));
+            return null;
+        }
+
+        final JsonObject target = ref.asJsonObject();
+        final String relationship = getString(target, KEY_RELATIONSHIP);
+
+        if (relationship == null) {
+            if (OP_REMOVE.equals(op)) {
+                return new AtomicOperation(index, op, target, null, null);
+            }
+            if (OP_ADD.equals(op)) {
+                errors.add(error("The `ref` of an `add` operation MUST identify a relationship", pointer + "/ref"));
+                return null;
+            }
+            if (data == null || data.getValueType() != ValueType.OBJECT) {
+                errors.add(error("The `data` member MUST be a resource object", pointer + "/data"));
+                return null;
+            }
+            return new AtomicOperation(index, op, target, null, data);
+        }
+
+        if (data == null) {
+            errors.add(error("A relationship operation MUST contain a `data` member", pointer));
+            return null;
+        }
+
+        if (!OP_UPDATE.equals(op) && data.getValueType() != ValueType.ARRAY) {
+            errors.add(error("The `data` of an `add` or `remove` relationship operation MUST be an array",
+                             pointer + "/data"));
+            return null;
+        }
+
+        return new AtomicOperation(index, op, target, relationship, data);
+    }
+
+    static boolean validTarget(JsonObject target, boolean identifierOptional) {
+        if (getString(target, KEY_TYPE) == null) {
+            return false;
+        }
+        return identifierOptional || getString(target, KEY_ID) != null || getString(target, KEY_LID) != null;
+    }
+
+    static String getString(JsonObject object, String key) {
+        JsonValue value = object.get(key);
+        return value instanceof JsonString ? ((JsonString) value).getString() : null;
+    }
+
+    static JsonObject error(String detail, String pointer) {
+        return new JsonApiError(Status.BAD_REQUEST, "Invalid Operation", detail, JsonApiError.Source.forPointer(pointer))
+                .toJson();
+    }
+
+    static String pointer(int index) {
+        return '/' + KEY_OPERATIONS + '/' + index;
+    }
+
+    static String localKey(String type, String lid) {
+        return type + '\u0000' + lid;
+    }
+
+    public String getPointer() {
+        return pointer(index);
+    }
+
+    /**
+     * Translate a pointer into the document of the equivalent single-resource
+     * request to a pointer into this operation of the atomic operations
+     * document.
+     *
+     * @param documentPointer pointer within the equivalent request document, may be null
+     * @return the pointer within the atomic operations document
+     */
+    public String getPointer(String documentPointer) {
+        if (documentPointer == null || documentPointer.isEmpty()) {
+            return getPointer();
+        }
+
+        if (isRelationship()) {
+            String linkage = '/' + KEY_DATA + '/' + KEY_RELATIONSHIPS + '/' + relationship + '/' + KEY_DATA;
+
+            if (documentPointer.startsWith(linkage)) {
+                return getPointer() + '/' + KEY_DATA + documentPointer.substring(linkage.length());
+            }
+
+            return getPointer() + '/' + KEY_REF;
+        }
+
+        return getPointer() + documentPointer;
+    }
+
+    /**
+     * @return the HTTP method of the equivalent single-resource request
+     */
+    public String getMethod() {
+        switch (op) {
+        case OP_ADD:
+            return HttpMethod.POST;
+        case OP_REMOVE:
+            return HttpMethod.DELETE;
+        default:
+            return HttpMethod.PATCH;
+        }
+    }
+
+    public boolean isRelationship() {
+        return relationship != null;
+    }
+
+    public String getResourceType() {
+        return getString(target, KEY_TYPE);
+    }
+
+    public String getRelationshipName() {
+        return relationship;
+    }
+
+    /**
+     * Identifier of the resource targeted by the operation, null for a
+     * resource being added.
+     *
+     * @param localIds identifiers assigned to resources added by earlier operations
+     * @return the identifier of the target resource
+     * @throws JsonApiErrorException when a local identifier is unknown
+     */
+    public String getResourceId(Map<String, String> localIds) {
+        if (OP_ADD.equals(op) && !isRelationship()) {
+            return getString(target, KEY_ID);
+        }
+        return resolve(target, localIds, getPointer() + (data == target ? "/data" : "/ref"));
+    }
+
+    /**
+     * Record the identifier assigned to a resource added by this operation so
+     * that later operations may refer to it by its local identifier.
+     *
+     * @param localIds identifiers assigned to resources added by earlier operations
+     * @param id the identifier assigned to the resource
+     */
+    public void putLocalId(Map<String, String> localIds, String id) {
+        String lid = getString(target, KEY_LID);
+
+        if (lid != null) {
+            localIds.put(localKey(getResourceType(), lid), id);
+        }
+    }
+
+    /**
+     * Build the request document of the equivalent single-resource request.
+     *
+     * @param localIds identifiers assigned to resources added by earlier operations
+     * @return the request document, or null when the operation has no document
+     * @throws JsonApiErrorException when a local identifier is unknown
+     */
+    public JsonObject getDocument(Map<String, String> localIds) {
+        final String pointer = getPointer() + "/data";
+        final JsonObjectBuilder resource;
+
+        if (data == null) {
+            return null;
+        }
+
+        if (isRelationship()) {
+            resource = Json.createObjectBuilder()
+                           .add(KEY_TYPE, getResourceType())
+                           .add(KEY_ID, getResourceId(localIds))
+                           .add(KEY_RELATIONSHIPS,
+                                Json.createObjectBuilder()
+                                    .add(relationship,
+                                         Json.createObjectBuilder().add(KEY_DATA, resolveLinkage(data, localIds, pointer))));
+        } else {
+            JsonObject source = data.asJsonObject();
+            resource = Json.createObjectBuilder(source).remove(KEY_LID);
+
+            if (!OP_ADD.equals(op)) {
+                resource.add(KEY_ID, getResourceId(localIds));
+            }
+
+            if (source.get(KEY_RELATIONSHIPS) instanceof JsonObject) {
+                JsonObjectBuilder relationships = Json.createObjectBuilder();
+
+                source.getJsonObject(KEY_RELATIONSHIPS).forEach((name, value) -> {
+                    if (value instanceof JsonObject && value.asJsonObject().containsKey(KEY_DATA)) {
+                        JsonValue linkage = resolveLinkage(value.asJsonObject().get(KEY_DATA),
+                                                           localIds,
+                                                           pointer + '/' + KEY_RELATIONSHIPS + '/' + name + "/data");
+                        relationships.add(name, Json.createObjectBuilder(value.asJsonObject()).add(KEY_DATA, linkage));
+                    } else {
+                        relationships.add(name, value);
+                    }
+                });
+
+                resource.add(KEY_RELATIONSHIPS, relationships);
+            }
+        }
+
+        return Json.createObjectBuilder().add(KEY_DATA, resource).build();
+    }
+
+    static JsonValue resolveLinkage(JsonValue linkage, Map<String, String> localIds, String pointer) {
+        if (linkage.getValueType() == ValueType.ARRAY) {
+            JsonArrayBuilder identifiers = Json.createArrayBuilder();
+            int i = 0;
+
+            for (JsonValue entry : linkage.asJsonArray()) {
+                identifiers.add(resolveIdentifier(entry, localIds, pointer + '/' + i++));
+            }
+
+            return identifiers.build();
+        }
+
+        return resolveIdentifier(linkage, localIds, pointer);
+    }
+
+    static JsonValue resolveIdentifier(JsonValue identifier, Map<String, String> localIds, String pointer) {
+        if (identifier.getValueType() != ValueType.OBJECT || !identifier.asJsonObject().containsKey(KEY_LID)) {
+            return identifier;
+        }
+
+        JsonObject source = identifier.asJsonObject();
+
+        return Json.createObjectBuilder(source)
+                   .remove(KEY_LID)
+                   .add(KEY_ID, resolve(source, localIds, pointer))
+                   .build();
+    }
+
+    static String resolve(JsonObject target, Map<String, String> localIds, String pointer) {
+        String id = getString(target, KEY_ID);
+
+        if (id != null) {
+            return id;
+        }
+
+        String lid = getString(target, KEY_LID);
+        id = lid != null ? localIds.get(localKey(getString(target, KEY_TYPE), lid)) : null;
+
+        if (id == null) {
+            JsonArray errors = Json.createArrayBuilder()
+                                   .add(error("Local identifier `" + lid + "` does not identify a resource added by a preceding operation",
+                                              pointer + '/' + KEY_LID))
+                                   .build();
+            throw new JsonApiErrorException(Status.BAD_REQUEST, errors);
+        }
+
+        return id;
+    }
+}
@@ -0,0 +1,113 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.ws.rs.core.EntityTag;
+
+/**
+ * JavaScript client module rendered for a single base URI, held in both the
+ * identity and gzip encodings. The entity tag is derived from a hash of the
+ * module's content, with a distinct tag for the gzip representation. The
+ * arrays returned by this class are shared and must not be modified.
+ */
+public class ClientModule {
+
+    public static final String GZIP = "gzip";
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final EntityTag identityTag;
+    private final EntityTag gzipTag;
+    private final Date lastModified;
+
+    public ClientModule(byte[] content) {
+        this.identity = content;
+        this.gzip = compress(content);
+
+        String hash = hash(content);
+        this.identityTag = new EntityTag(hash);
+        this.gzipTag = new EntityTag(hash + "-" + GZIP);
+        // HTTP dates have a resolution of seconds
+        this.lastModified = new Date(System.currentTimeMillis() / 1000 * 1000);
+    }
+
+    static byte[] compress(byte[] content) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 2);
+
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return buffer.toByteArray();
+    }
+
+    static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Determine whether the value of an `Accept-Encoding` request header
+     * permits the gzip encoding.
+     *
+     * @param acceptEncoding the header value, may be null
+     * @return true if the gzip representation may be sent
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parameters = entry.split(";");
+            String coding = parameters[0].trim();
+
+            if (GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                return !isRejected(parameters);
+            }
+        }
+
+        return false;
+    }
+
+    static boolean isRejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public byte[] getContent(boolean gzipped) {
+        return gzipped ? gzip : identity;
+    }
+
+    public EntityTag getEntityTag(boolean gzipped) {
+        return gzipped ? gzipTag : identityTag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
@@ -1,9 +1,11 @@
 package io.xlate.jsonapi.rvp.internal.rs.entity;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import jakarta.json.JsonObject;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
@@ -26,8 +28,11 @@ public class InternalContext implements JsonApiContext {
     private EntityMeta entityMeta;
     private final JsonObject requestEntity;
 
+    private EntityTag entityTag;
+    private String ifMatch;
     private ResponseBuilder responseBuilder;
     private Map<String, Object> attributes = new HashMap<>();
+    private final Map<String, List<Object>> versions = new HashMap<>(2);
 
     public InternalContext(Request request, UriInfo uriInfo, SecurityContext security, String resourceType, String id, String relationshipName, JsonObject requestEntity) {
         this.request = request;
@@ -108,6 +113,44 @@ public class InternalContext implements JsonApiContext {
         return requestEntity;
     }
 
+    /**
+     * Entity tag to be given with a successful response in place of one
+     * computed from the content of the response.
+     *
+     * @return the entity tag, or null when computed from the response
+     */
+    public EntityTag getEntityTag() {
+        return entityTag;
+    }
+
+    public void setEntityTag(EntityTag entityTag) {
+        this.entityTag = entityTag;
+    }
+
+    /**
+     * Value of the request's `If-Match` header, evaluated against the version
+     * of the resource before it is modified.
+     *
+     * @return the `If-Match` header value, or null when not given
+     */
+    public String getIfMatch() {
+        return ifMatch;
+    }
+
+    public void setIfMatch(String ifMatch) {
+        this.ifMatch = ifMatch;
+    }
+
+    /**
+     * Results of the version queries made while reading, keyed by resource
+     * type and identifier, so that each version is queried once per request.
+     *
+     * @return the versions read by this request
+     */
+    public Map<String, List<Object>> getVersions() {
+        return versions;
+    }
+
     @Override
     public void setResponse(int status, JsonObject entity) {
         this.responseBuilder = Response.status(status).entity(entity);
@@ -32,6 +32,11 @@ public class InternalQuery implements JsonApiQuery {
     public static final String PARAM_PAGE_NUMBER = "page[number]";
     public static final String PARAM_PAGE_SIZE = "page[size]";
 
+    public static final String PARAM_PAGE_AFTER = "page[after]";
+    public static final String PARAM_PAGE_BEFORE = "page[before]";
+
+    public static final String PARAM_PAGE_TOTAL = "page[total]";
+
     private static final Pattern PATTERN_FIELDS = Pattern.compile("fields\\[([^]]+?)\\]");
     private static final Pattern PATTERN_FILTER = Pattern.compile("filter\\[([^]]+?)\\]");
 
@@ -52,6 +57,10 @@ public class InternalQuery implements JsonApiQuery {
     private Integer firstResult = null;
     private Integer maxResults;
 
+    private String pageAfter;
+    private String pageBefore;
+    private Boolean pageTotal;
+
     public InternalQuery(EntityMetamodel model, EntityMeta entityMeta, String id, String relationshipName, UriInfo uriInfo) {
         super();
         this.model = model;
@@ -136,7 +145,22 @@ public class InternalQuery implements JsonApiQuery {
     }
 
     void processPaging(MultivaluedMap<String, String> params) {
-        if (params.containsKey(PARAM_PAGE_OFFSET)) {
+        if (params.containsKey(PARAM_PAGE_TOTAL)) {
+            this.pageTotal = Boolean.valueOf(params.getFirst(PARAM_PAGE_TOTAL));
+        }
+
+        if (params.containsKey(PARAM_PAGE_AFTER) || params.containsKey(PARAM_PAGE_BEFORE)) {
+            this.pageAfter = params.getFirst(PARAM_PAGE_AFTER);
+            this.pageBefore = params.getFirst(PARAM_PAGE_BEFORE);
+
+            if (params.containsKey(PARAM_PAGE_SIZE)) {
+                this.maxResults = tryParseInt(params.getFirst(PARAM_PAGE_SIZE), 10);
+            } else if (params.containsKey(PARAM_PAGE_LIMIT)) {
+                this.maxResults = tryParseInt(params.getFirst(PARAM_PAGE_LIMIT), 10);
+            } else {
+                this.maxResults = 10;
+            }
+        } else if (params.containsKey(PARAM_PAGE_OFFSET)) {
             this.firstResult = tryParseInt(params.getFirst(PARAM_PAGE_OFFSET), 0);
 
             if (params.containsKey(PARAM_PAGE_LIMIT)) {
@@ -236,6 +260,38 @@ public class InternalQuery implements JsonApiQuery {
         return maxResults;
     }
 
+    /**
+     * Keyset pagination is in use when either a `page[after]` or a
+     * `page[before]` cursor was given.
+     *
+     * @return true if the request pages using cursors
+     */
+    public boolean isKeysetPaging() {
+        processUri();
+        return pageAfter != null || pageBefore != null;
+    }
+
+    public String getPageAfter() {
+        processUri();
+        return pageAfter;
+    }
+
+    public String getPageBefore() {
+        processUri();
+        return pageBefore;
+    }
+
+    /**
+     * Whether the client requested (true) or declined (false) the total number
+     * of results using `page[total]`, or null when not specified.
+     *
+     * @return the client's preference for the total number of results
+     */
+    public Boolean getPageTotal() {
+        processUri();
+        return pageTotal;
+    }
+
     public void addField(String resourceType, String fieldName) {
         processUri();
         addField(this.fields, resourceType, fieldName);
@@ -0,0 +1,123 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.ws.rs.core.UriBuilder;
+
+/**
+ * Path template of a resource method, resolved once from the JAX-RS
+ * annotations of the resource class and split into literal segments and
+ * template variables. Links are expanded by appending the template to the
+ * request's base URI, with each value encoded as a path segment in the order
+ * the variables first appear in the template (the same as
+ * {@link UriBuilder#build(Object...)}).
+ */
+public class LinkTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final List<String> literals = new ArrayList<>();
+    private final List<Integer> variables = new ArrayList<>();
+
+    public LinkTemplate(Class<?> resourceClass, String methodName) {
+        this(UriBuilder.fromPath("").path(resourceClass).path(resourceClass, methodName).toTemplate());
+    }
+
+    LinkTemplate(String template) {
+        final List<String> names = new ArrayList<>();
+        int start = 0;
+        int open;
+
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = closingBrace(template, open);
+            String name = template.substring(open + 1, close);
+            int colon = name.indexOf(':');
+
+            if (colon >= 0) {
+                name = name.substring(0, colon);
+            }
+
+            name = name.trim();
+
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+
+            literals.add(template.substring(start, open));
+            variables.add(names.indexOf(name));
+            start = close + 1;
+        }
+
+        literals.add(template.substring(start));
+    }
+
+    static int closingBrace(String template, int open) {
+        int depth = 0;
+
+        for (int i = open; i < template.length(); i++) {
+            char c = template.charAt(i);
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated template variable: " + template);
+    }
+
+    /**
+     * Expand the template against the base URI using the values given.
+     *
+     * @param baseUri the base URI of the application, with or without a trailing slash
+     * @param values values of the template variables, in order of their first appearance
+     * @return the expanded link
+     */
+    public String expand(String baseUri, Object... values) {
+        StringBuilder link = new StringBuilder(baseUri.length() + 64);
+        link.append(baseUri);
+
+        int last = link.length() - 1;
+        String first = literals.get(0);
+
+        if (last >= 0 && link.charAt(last) == '/' && first.startsWith("/")) {
+            link.setLength(last);
+        }
+
+        for (int i = 0, m = variables.size(); i < m; i++) {
+            link.append(literals.get(i));
+            encodeSegment(link, String.valueOf(values[variables.get(i)]));
+        }
+
+        link.append(literals.get(variables.size()));
+        return link.toString();
+    }
+
+    static void encodeSegment(StringBuilder target, String value) {
+        for (int i = 0, m = value.length(); i < m; i++) {
+            char c = value.charAt(i);
+
+            if (isSegmentChar(c)) {
+                target.append(c);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < m ? i + 2 : i + 1;
+
+                for (byte b : value.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    target.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+                }
+
+                i = end - 1;
+            }
+        }
+    }
+
+    static boolean isSegmentChar(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return true;
+        }
+        return "-._~!$&'()*+,;=:@".indexOf(c) >= 0;
+    }
+}
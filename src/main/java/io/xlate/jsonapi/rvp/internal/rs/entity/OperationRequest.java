@@ -0,0 +1,56 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.util.Date;
+import java.util.List;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
+import jakarta.ws.rs.core.Variant;
+
+/**
+ * Request of a single operation within an atomic operations document. The
+ * operation is processed as if it were sent using the HTTP method of the
+ * equivalent single-resource request. Preconditions of the enclosing request
+ * apply to the document as a whole, so none are evaluated for the operation.
+ */
+public class OperationRequest implements Request {
+
+    private final Request request;
+    private final String method;
+
+    public OperationRequest(Request request, String method) {
+        this.request = request;
+        this.method = method;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public Variant selectVariant(List<Variant> variants) {
+        return request.selectVariant(variants);
+    }
+
+    @Override
+    public ResponseBuilder evaluatePreconditions(EntityTag eTag) {
+        return null;
+    }
+
+    @Override
+    public ResponseBuilder evaluatePreconditions(Date lastModified) {
+        return null;
+    }
+
+    @Override
+    public ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag eTag) {
+        return null;
+    }
+
+    @Override
+    public ResponseBuilder evaluatePreconditions() {
+        return null;
+    }
+}
@@ -0,0 +1,49 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonReader;
+
+/**
+ * Opaque cursor used for keyset pagination. A cursor holds the values of each
+ * of the sort keys followed by the exposed identifier of the resource at the
+ * boundary of a page, encoded as a URL-safe base64 JSON array.
+ */
+public class PageCursor {
+
+    private PageCursor() {
+    }
+
+    public static String encode(JsonArray values) {
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString(values.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously created by {@link #encode(JsonArray)}. An
+     * empty cursor decodes to an empty array, representing the first (or for
+     * `page[before]`, the last) page.
+     *
+     * @param cursor encoded cursor
+     * @return the decoded array of key values
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static JsonArray decode(String cursor) {
+        if (cursor.isEmpty()) {
+            return JsonArray.EMPTY_JSON_ARRAY;
+        }
+
+        try (JsonReader reader = Json.createReader(new StringReader(new String(Base64.getUrlDecoder().decode(cursor),
+                                                                               StandardCharsets.UTF_8)))) {
+            return reader.readArray();
+        } catch (JsonException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Map;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import io.xlate.jsonapi.rvp.internal.persistence.entity.Entity;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
+
+/**
+ * Ordered attributes of a resource type, each paired with a writer chosen from
+ * the attribute's declared Java type. Built once per {@link EntityMeta} so that
+ * serializing the attributes of a resource needs neither sorting nor a type
+ * test per value. Attributes declared with a type not handled specifically are
+ * written using {@link #toJsonValue(Object)}.
+ */
+public class SerializationPlan {
+
+    @FunctionalInterface
+    interface ValueWriter {
+        void write(JsonObjectBuilder builder, String name, Object value);
+    }
+
+    static class Slot {
+        final String name;
+        final ValueWriter writer;
+
+        Slot(String name, ValueWriter writer) {
+            this.name = name;
+            this.writer = writer;
+        }
+    }
+
+    private static final Map<Class<?>, ValueWriter> writers = Map.of(String.class,
+                                                                     (b, n, v) -> b.add(n, (String) v),
+                                                                     Boolean.class,
+                                                                     (b, n, v) -> b.add(n, ((Boolean) v).booleanValue()),
+                                                                     Long.class,
+                                                                     (b, n, v) -> b.add(n, ((Long) v).longValue()),
+                                                                     Integer.class,
+                                                                     (b, n, v) -> b.add(n, ((Integer) v).intValue()),
+                                                                     Double.class,
+                                                                     (b, n, v) -> b.add(n, Json.createValue((Double) v)),
+                                                                     Float.class,
+                                                                     (b, n, v) -> b.add(n, Json.createValue((Float) v)),
+                                                                     BigDecimal.class,
+                                                                     (b, n, v) -> b.add(n, (BigDecimal) v),
+                                                                     BigInteger.class,
+                                                                     (b, n, v) -> b.add(n, (BigInteger) v),
+                                                                     OffsetDateTime.class,
+                                                                     (b, n, v) -> b.add(n, format((OffsetDateTime) v)));
+
+    private final String resourceType;
+    private final Slot[] slots;
+
+    public SerializationPlan(EntityMeta meta) {
+        this.resourceType = meta.getResourceType();
+        this.slots = meta.getAttributes()
+                         .values()
+                         .stream()
+                         .map(attribute -> new Slot(attribute.getName(), writer(attribute)))
+                         .sorted((s1, s2) -> s1.name.compareTo(s2.name))
+                         .toArray(Slot[]::new);
+    }
+
+    static ValueWriter writer(SingularAttribute<?, ?> attribute) {
+        Class<?> type = EntityMeta.wrap(attribute.getJavaType());
+
+        if (Date.class.isAssignableFrom(type)) {
+            return (b, n, v) -> b.add(n, format((Date) v));
+        }
+
+        return writers.getOrDefault(type, (b, n, v) -> b.add(n, toJsonValue(v)));
+    }
+
+    /**
+     * Write the attributes of the resource to a new JSON object, omitting
+     * attributes excluded by the sparse fieldsets of the request (when given).
+     *
+     * @param params the request's query parameters, may be null
+     * @param bean the resource to serialize
+     * @return the JSON object of attributes
+     */
+    public JsonObject write(InternalQuery params, Entity bean) {
+        final JsonObjectBuilder attributes = Json.createObjectBuilder();
+
+        for (Slot slot : slots) {
+            if (params == null || params.includeField(resourceType, slot.name)) {
+                Object value = bean.getAttribute(slot.name);
+
+                if (value == null) {
+                    attributes.addNull(slot.name);
+                } else {
+                    slot.writer.write(attributes, slot.name, value);
+                }
+            }
+        }
+
+        return attributes.build();
+    }
+
+    static String format(Date value) {
+        return value.toInstant().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    static String format(OffsetDateTime value) {
+        return value.toInstant().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    public static JsonValue toJsonValue(Object value) {
+        final JsonValue result;
+
+        if (value == null) {
+            result = JsonValue.NULL;
+        } else if (Date.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue(format((Date) value));
+        } else if (OffsetDateTime.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue(format((OffsetDateTime) value));
+        } else if (Boolean.class.isAssignableFrom(value.getClass())) {
+            result = ((Boolean) value) ? JsonValue.TRUE : JsonValue.FALSE;
+        } else if (BigDecimal.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((BigDecimal) value);
+        } else if (BigInteger.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((BigInteger) value);
+        } else if (Long.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((Long) value);
+        } else if (Integer.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((Integer) value);
+        } else if (Double.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((Double) value);
+        } else if (Float.class.isAssignableFrom(value.getClass())) {
+            result = Json.createValue((Float) value);
+        } else {
+            result = Json.createValue(String.valueOf(value));
+        }
+
+        return result;
+    }
+}
@@ -7,13 +7,19 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import jakarta.json.JsonArray;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonValue.ValueType;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import jakarta.ws.rs.core.MultivaluedMap;
 
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
 import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
+import io.xlate.jsonapi.rvp.internal.rs.boundary.ResourceObjectReader;
 import io.xlate.jsonapi.rvp.internal.rs.entity.InternalQuery;
+import io.xlate.jsonapi.rvp.internal.rs.entity.PageCursor;
 
 public class JsonApiUriQueryValidator
         implements ConstraintValidator<ValidJsonApiQuery, InternalQuery> {
@@ -34,6 +40,13 @@ public class JsonApiUriQueryValidator
 
         MultivaluedMap<String, String> params = value.getUriInfo().getQueryParameters();
         String id = value.getId();
+        String keysetId = id;
+
+        if (value.getRelationshipName() != null
+                && (params.containsKey(InternalQuery.PARAM_PAGE_AFTER) || params.containsKey(InternalQuery.PARAM_PAGE_BEFORE))) {
+            // Related resource collections may be sorted and paged by cursor
+            keysetId = null;
+        }
 
         valid = validateFields(value, context, valid);
         valid = validateFilters(value, context, valid);
@@ -43,14 +56,19 @@ public class JsonApiUriQueryValidator
         }
 
         if (params.containsKey(InternalQuery.PARAM_SORT)) {
-            valid = validateSort(value, id, params, context, valid);
+            valid = validateSort(value, keysetId, params, context, valid);
         }
 
         valid = validatePaging(id, InternalQuery.PARAM_PAGE_NUMBER, params, context, valid);
-        valid = validatePaging(id, InternalQuery.PARAM_PAGE_SIZE, params, context, valid);
+        valid = validatePaging(keysetId, InternalQuery.PARAM_PAGE_SIZE, params, context, valid);
 
         valid = validatePaging(id, InternalQuery.PARAM_PAGE_OFFSET, params, context, valid);
-        valid = validatePaging(id, InternalQuery.PARAM_PAGE_LIMIT, params, context, valid);
+        valid = validatePaging(keysetId, InternalQuery.PARAM_PAGE_LIMIT, params, context, valid);
+
+        valid = validateCursor(value, InternalQuery.PARAM_PAGE_AFTER, params, context, valid);
+        valid = validateCursor(value, InternalQuery.PARAM_PAGE_BEFORE, params, context, valid);
+
+        valid = validateTotal(keysetId, params, context, valid);
 
         return valid;
     }
@@ -68,7 +86,7 @@ public class JsonApiUriQueryValidator
         Set<String> included = new HashSet<>();
 
         for (String attribute : includeParam.split(",")) {
-            if (!included.contains(attribute) && !meta.isRelatedTo(attribute)) {
+            if (!included.contains(attribute) && !isValidIncludePath(value.getModel(), meta, attribute)) {
                 valid = false;
                 addViolation(context, InternalQuery.PARAM_INCLUDE, "Invalid relationship: `" + attribute + "`");
             }
@@ -79,6 +97,21 @@ public class JsonApiUriQueryValidator
         return valid;
     }
 
+    /*
+     * Each element of a (dot-separated) include path must be a relationship of
+     * the resource type reached by the preceding elements.
+     */
+    boolean isValidIncludePath(EntityMetamodel model, EntityMeta meta, String path) {
+        for (String relationshipName : path.split("\\.", -1)) {
+            if (meta == null || !meta.isRelatedTo(relationshipName)) {
+                return false;
+            }
+            meta = model.getEntityMeta(meta.getRelatedEntityClass(relationshipName));
+        }
+
+        return true;
+    }
+
     boolean validateFields(InternalQuery value, ConstraintValidatorContext context, boolean valid) {
         EntityMetamodel model = value.getModel();
 
@@ -125,12 +158,29 @@ public class JsonApiUriQueryValidator
             if (!validFilter) {
                 valid = false;
                 addViolation(context, "filter[" + path + "]", "Filter path `" + path + "` is not valid");
+            } else if (!isValidFilterValue(model, meta, elements[elements.length - 1], filter.getValue())) {
+                valid = false;
+                addViolation(context, "filter[" + path + "]", "Filter value `" + filter.getValue() + "` is not valid");
             }
         }
 
         return valid;
     }
 
+    boolean isValidFilterValue(EntityMetamodel model, EntityMeta meta, String name, String filterValue) {
+        if ("null".equals(filterValue) || "!null".equals(filterValue)) {
+            return true;
+        }
+
+        try {
+            new ResourceObjectReader(model).readValue(meta, name, filterValue);
+            return true;
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.FINER, () -> "Invalid filter value: `" + filterValue + "`.");
+            return false;
+        }
+    }
+
     public static EntityMeta getRelatedEntityMeta(EntityMetamodel model, EntityMeta meta, String relationshipJoin) {
         final String relationshipName;
 
@@ -218,6 +268,117 @@ public class JsonApiUriQueryValidator
         return valid;
     }
 
+    boolean validateCursor(InternalQuery value,
+                           String paramName,
+                           MultivaluedMap<String, String> params,
+                           ConstraintValidatorContext context,
+                           boolean valid) {
+
+        if (!params.containsKey(paramName)) {
+            return valid;
+        }
+
+        List<String> cursorValues = params.get(paramName);
+        valid = validateSingle(paramName, cursorValues, context, valid);
+
+        if (value.getId() != null && value.getRelationshipName() == null) {
+            valid = false;
+            addViolation(context, paramName, "Pagination not allowed for single resource requests");
+        } else if (InternalQuery.PARAM_PAGE_BEFORE.equals(paramName) && params.containsKey(InternalQuery.PARAM_PAGE_AFTER)) {
+            valid = false;
+            addViolation(context, paramName, "Parameters `page[after]` and `page[before]` may not be combined");
+        } else if (params.containsKey(InternalQuery.PARAM_PAGE_OFFSET) || params.containsKey(InternalQuery.PARAM_PAGE_NUMBER)) {
+            valid = false;
+            addViolation(context, paramName, "Cursor pagination may not be combined with `page[offset]` or `page[number]`");
+        } else {
+            try {
+                JsonArray cursor = PageCursor.decode(cursorValues.get(0));
+
+                if (!cursor.isEmpty() && cursor.size() != value.getSort().size() + 1) {
+                    valid = false;
+                    addViolation(context, paramName, "Page cursor does not match the requested sort");
+                } else if (!cursor.isEmpty() && !isValidCursor(value, cursor)) {
+                    LOGGER.log(Level.FINER, () -> "Invalid page cursor values: `" + cursor + "`.");
+                    valid = false;
+                    addViolation(context, paramName, "Page cursor is not valid");
+                }
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.FINER, () -> "Invalid page cursor: `" + cursorValues.get(0) + "`.");
+                valid = false;
+                addViolation(context, paramName, "Page cursor is not valid");
+            }
+        }
+
+        return valid;
+    }
+
+    /*
+     * Each value of the cursor must be readable as the type of its sort key,
+     * the final value being the exposed identifier in its string form.
+     */
+    boolean isValidCursor(InternalQuery value, JsonArray cursor) {
+        final EntityMeta meta = getEntityMeta(value);
+        final ResourceObjectReader reader = new ResourceObjectReader(value.getModel());
+        final List<String> sort = value.getSort();
+
+        try {
+            for (int i = 0; i < sort.size(); i++) {
+                String sortKey = sort.get(i);
+                String attribute = sortKey.substring(sortKey.startsWith("-") ? 1 : 0);
+                JsonValue element = cursor.get(i);
+
+                if (!meta.hasAttribute(attribute)) {
+                    // Reported as an invalid sort key
+                    continue;
+                }
+
+                if (isBoolean(meta, attribute)) {
+                    if (element != JsonValue.TRUE && element != JsonValue.FALSE && element != JsonValue.NULL) {
+                        return false;
+                    }
+                } else {
+                    reader.readValue(meta, attribute, element);
+                }
+            }
+
+            JsonValue id = cursor.get(sort.size());
+            return id.getValueType() == ValueType.STRING && meta.readId(((JsonString) id).getString()) != null;
+        } catch (RuntimeException e) {
+            // Values of the wrong JSON type or rejected by a reader
+            return false;
+        }
+    }
+
+    static boolean isBoolean(EntityMeta meta, String attribute) {
+        Class<?> propertyType = meta.getPropertyDescriptor(attribute).getPropertyType();
+        return propertyType == Boolean.class || propertyType == Boolean.TYPE;
+    }
+
+    boolean validateTotal(String id,
+                          MultivaluedMap<String, String> params,
+                          ConstraintValidatorContext context,
+                          boolean valid) {
+
+        final String paramName = InternalQuery.PARAM_PAGE_TOTAL;
+
+        if (params.containsKey(paramName)) {
+            if (id != null) {
+                valid = false;
+                addViolation(context, paramName, "Pagination not allowed for single resource requests");
+            } else {
+                List<String> totalValues = params.get(paramName);
+                valid = validateSingle(paramName, totalValues, context, valid);
+
+                if (!"true".equals(totalValues.get(0)) && !"false".equals(totalValues.get(0))) {
+                    valid = false;
+                    addViolation(context, paramName, "Parameter `page[total]` must be `true` or `false`");
+                }
+            }
+        }
+
+        return valid;
+    }
+
     boolean validateSingle(String paramName,
                            List<String> paramValues,
                            ConstraintValidatorContext context,
@@ -1,6 +1,15 @@
 package io.xlate.jsonapi.rvp.internal.validation.boundary;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -9,32 +18,220 @@ import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.ContainerElementTypeDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.PATCH;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.core.Response.Status;
 
+import io.xlate.jsonapi.rvp.JsonApiValidationMode;
 import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
 
+/**
+ * Validates entities either in a new transaction (suspending the transaction
+ * of the caller) or in the caller's transaction. The HTTP method of the
+ * request is added to the validation groups as the corresponding JAX-RS
+ * annotation class, e.g. {@link POST}.
+ */
 @ApplicationScoped
 public class TransactionalValidator {
 
+    static final Map<String, Class<?>> METHOD_GROUPS = Map.of(HttpMethod.GET, GET.class,
+                                                              HttpMethod.POST, POST.class,
+                                                              HttpMethod.PUT, PUT.class,
+                                                              HttpMethod.PATCH, PATCH.class,
+                                                              HttpMethod.DELETE, DELETE.class);
+
     private Validator validator;
 
+    private final ClassValue<Boolean> databaseAccess = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return hasDatabaseAccess(type, new HashSet<>());
+        }
+    };
+
     @Inject
     public void setValidator(Validator validator) {
         this.validator = validator;
     }
 
+    /**
+     * Determine whether the entity class must be validated in a new
+     * transaction under the given mode.
+     *
+     * @param mode the validation mode of the resource type
+     * @param type the entity class
+     * @return true if a new transaction is required
+     */
+    public boolean requiresNewTransaction(JsonApiValidationMode mode, Class<?> type) {
+        switch (mode) {
+        case CALLER_TRANSACTION:
+            return false;
+        case NEW_TRANSACTION_IF_REQUIRED:
+            return databaseAccess.get(type);
+        default:
+            return true;
+        }
+    }
+
+    /*
+     * Scan the constraints of the type, its properties and the elements of
+     * container properties (e.g. `List<@Valid Item>`), following cascaded
+     * properties and elements to the constraints of their (generic) types.
+     */
+    boolean hasDatabaseAccess(Class<?> type, Set<Class<?>> visited) {
+        if (type == null || !visited.add(type)) {
+            return false;
+        }
+
+        BeanDescriptor bean = validator.getConstraintsForClass(type);
+
+        if (bean.getConstraintDescriptors().stream().anyMatch(TransactionalValidator::hasDatabaseAccess)) {
+            return true;
+        }
+
+        for (PropertyDescriptor property : bean.getConstrainedProperties()) {
+            if (property.getConstraintDescriptors().stream().anyMatch(TransactionalValidator::hasDatabaseAccess)
+                    || hasDatabaseAccess(property.getConstrainedContainerElementTypes(), visited)) {
+                return true;
+            }
+
+            if (property.isCascaded()) {
+                for (Class<?> cascadedType : cascadedTypes(propertyType(type, property.getPropertyName()))) {
+                    if (hasDatabaseAccess(cascadedType, visited)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    boolean hasDatabaseAccess(Set<ContainerElementTypeDescriptor> elements, Set<Class<?>> visited) {
+        for (ContainerElementTypeDescriptor element : elements) {
+            if (element.getConstraintDescriptors().stream().anyMatch(TransactionalValidator::hasDatabaseAccess)
+                    || (element.isCascaded() && hasDatabaseAccess(element.getElementClass(), visited))
+                    || hasDatabaseAccess(element.getConstrainedContainerElementTypes(), visited)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * The generic type of the named property, declared by a field or getter of
+     * the type or one of its super classes.
+     */
+    static Type propertyType(Class<?> type, String name) {
+        final String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(name)) {
+                    return field.getGenericType();
+                }
+            }
+
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getParameterCount() == 0
+                        && (method.getName().equals("get" + suffix) || method.getName().equals("is" + suffix))) {
+                    return method.getGenericReturnType();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /*
+     * The classes of a cascaded property's type, including the (nested) type
+     * arguments of a container type such as `List<Item>` or `Map<Key, Item>`
+     * and the component type of an array.
+     */
+    static Set<Class<?>> cascadedTypes(Type type) {
+        final Set<Class<?>> types = new LinkedHashSet<>();
+
+        if (type instanceof Class) {
+            Class<?> rawType = (Class<?>) type;
+            types.add(rawType.isArray() ? rawType.getComponentType() : rawType);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            types.addAll(cascadedTypes(parameterized.getRawType()));
+
+            for (Type argument : parameterized.getActualTypeArguments()) {
+                types.addAll(cascadedTypes(argument));
+            }
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                types.addAll(cascadedTypes(bound));
+            }
+        } else if (type instanceof GenericArrayType) {
+            types.addAll(cascadedTypes(((GenericArrayType) type).getGenericComponentType()));
+        }
+
+        return types;
+    }
+
+    static boolean hasDatabaseAccess(ConstraintDescriptor<?> constraint) {
+        return constraint.getPayload().contains(JsonApiValidationMode.DatabaseAccess.class)
+                || constraint.getComposingConstraints().stream().anyMatch(TransactionalValidator::hasDatabaseAccess);
+    }
+
     @Transactional(value = TxType.REQUIRES_NEW)
     public <T> Set<ConstraintViolation<T>> validate(String method, T entity, Class<?>... groups) {
-        final int groupCount = groups.length + 1;
-        final Class<?>[] validationGroups = Arrays.copyOf(groups, groupCount);
+        return validateInCallerTransaction(method, entity, groups);
+    }
 
-        try {
-            validationGroups[groupCount - 1] = Class.forName("jakarta.ws.rs." + method);
-        } catch (ClassNotFoundException e) {
-            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", e.getMessage());
+    public <T> Set<ConstraintViolation<T>> validateInCallerTransaction(String method, T entity, Class<?>... groups) {
+        return this.validator.validate(entity, validationGroups(method, groups));
+    }
+
+    /**
+     * Validate the given values of properties of the bean type individually,
+     * as they would be validated when set on an instance of the type.
+     *
+     * @param <T> the bean type
+     * @param method the HTTP method of the request, added to the validation groups
+     * @param beanType the type declaring the properties
+     * @param values the values keyed by property name
+     * @param groups additional validation groups
+     * @return the violations of all values
+     */
+    @Transactional(value = TxType.REQUIRES_NEW)
+    public <T> Set<ConstraintViolation<T>> validateValues(String method, Class<T> beanType, Map<String, Object> values, Class<?>... groups) {
+        return validateValuesInCallerTransaction(method, beanType, values, groups);
+    }
+
+    public <T> Set<ConstraintViolation<T>> validateValuesInCallerTransaction(String method, Class<T> beanType, Map<String, Object> values, Class<?>... groups) {
+        final Class<?>[] validationGroups = validationGroups(method, groups);
+        final Set<ConstraintViolation<T>> violations = new LinkedHashSet<>();
+
+        values.forEach((name, value) -> violations.addAll(this.validator.validateValue(beanType, name, value, validationGroups)));
+
+        return violations;
+    }
+
+    static Class<?>[] validationGroups(String method, Class<?>... groups) {
+        final Class<?> methodGroup = METHOD_GROUPS.get(method);
+
+        if (methodGroup == null) {
+            throw new JsonApiErrorException(Status.INTERNAL_SERVER_ERROR, "Server Error", "Unsupported method: " + method);
         }
 
-        return this.validator.validate(entity, validationGroups);
+        final int groupCount = groups.length + 1;
+        final Class<?>[] validationGroups = Arrays.copyOf(groups, groupCount);
+        validationGroups[groupCount - 1] = methodGroup;
+
+        return validationGroups;
     }
 
 }
@@ -29,16 +29,17 @@ module io.xlate.jsonapi.rvp {
 
     requires java.desktop;
     requires java.logging;
+    requires java.naming;
 
     requires jakarta.cdi;
     requires jakarta.el;
     requires jakarta.inject;
     requires jakarta.persistence;
     requires jakarta.transaction;
-    requires jakarta.validation;
     requires jakarta.xml.bind;
 
     requires transitive jakarta.json;
+    requires transitive jakarta.validation;
     requires transitive jakarta.ws.rs;
 
     exports io.xlate.jsonapi.rvp;
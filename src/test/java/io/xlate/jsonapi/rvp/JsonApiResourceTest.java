@@ -1,20 +1,46 @@
 package io.xlate.jsonapi.rvp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.Bean;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
@@ -25,19 +51,31 @@ import jakarta.json.stream.JsonGenerator;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
 import jakarta.validation.Validation;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
 import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.jboss.resteasy.specimpl.ResteasyUriInfo;
 import org.json.JSONException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -46,17 +84,36 @@ import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
 
 import io.xlate.jsonapi.rvp.internal.DefaultJsonApiHandler;
+import io.xlate.jsonapi.rvp.internal.cache.entity.ExpiringCache;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
 import io.xlate.jsonapi.rvp.internal.validation.boundary.TransactionalValidator;
 import io.xlate.jsonapi.rvp.test.entity.Author;
 import io.xlate.jsonapi.rvp.test.entity.Comment;
 import io.xlate.jsonapi.rvp.test.entity.Post;
 import io.xlate.jsonapi.rvp.test.entity.ReadOnlyCode;
+import io.xlate.jsonapi.rvp.test.entity.Tag;
 import io.xlate.jsonapi.rvp.test.entity.TypeModel;
 
 class JsonApiResourceTest {
 
     @Path("/test")
     static class ApiImpl extends JsonApiResource {
+        TransactionSynchronizationRegistry transactions;
+        Executor queryExecutor;
+
+        @Override
+        protected TransactionSynchronizationRegistry getTransactionSynchronizationRegistry() {
+            return transactions;
+        }
+
+        @Override
+        protected Executor getQueryExecutor() {
+            return queryExecutor;
+        }
+    }
+
+    static class PostSubclass extends Post {
     }
 
     EntityManagerFactory emf;
@@ -64,9 +121,25 @@ class JsonApiResourceTest {
     JsonApiResource target;
     JsonApiHandler<?> defaultHandler = new DefaultJsonApiHandler();
 
-    Iterator<JsonApiHandler<?>> handlerIterator() {
-        List<JsonApiHandler<?>> handlers = Arrays.asList(defaultHandler);
-        return handlers.iterator();
+    /*
+     * Make the handlers given available as beans of the scope given, each
+     * implemented by the class of the handler instance.
+     */
+    @SuppressWarnings("unchecked")
+    void mockHandlers(Class<? extends Annotation> scope, JsonApiHandler<?>... available) {
+        List<Instance.Handle<JsonApiHandler<?>>> handles = new ArrayList<>();
+
+        for (JsonApiHandler<?> handler : available) {
+            Instance.Handle<JsonApiHandler<?>> handle = Mockito.mock(Instance.Handle.class);
+            Bean<JsonApiHandler<?>> bean = Mockito.mock(Bean.class);
+            Mockito.doReturn(handler).when(handle).get();
+            Mockito.when(handle.getBean()).thenReturn(bean);
+            Mockito.when(bean.getBeanClass()).thenAnswer(call -> handler.getClass());
+            Mockito.when(bean.getScope()).thenAnswer(call -> scope);
+            handles.add(handle);
+        }
+
+        Mockito.doAnswer(call -> handles).when(target.handlers).handles();
     }
 
     @SuppressWarnings("unchecked")
@@ -83,29 +156,96 @@ class JsonApiResourceTest {
         target.txValidator = new TransactionalValidator();
         target.txValidator.setValidator(target.validator);
 
-        Mockito.when(target.handlers.iterator()).thenReturn(handlerIterator());
+        mockHandlers(ApplicationScoped.class, defaultHandler);
 
+        target.initialize(defaultResourceTypes());
+    }
+
+    Set<JsonApiResourceType<?>> defaultResourceTypes() {
         Set<JsonApiResourceType<?>> resourceTypes = new HashSet<>();
-        resourceTypes.add(JsonApiResourceType.define("authors", Author.class)
-                                             .build());
-        resourceTypes.add(JsonApiResourceType.define("posts", Post.class)
-                                             .exposedIdAttribute("id", Integer::valueOf)
-                                             .reader("title", String::valueOf)
-                                             .build());
-        resourceTypes.add(JsonApiResourceType.define("comments", Comment.class)
-                                             .build());
+        resourceTypes.add(JsonApiResourceType.define("authors", Author.class).build());
+        resourceTypes.add(posts().build());
+        resourceTypes.add(JsonApiResourceType.define("comments", Comment.class).build());
         resourceTypes.add(JsonApiResourceType.define("readonly-codes", ReadOnlyCode.class)
                                              .methods(GET.class)
+                                             .versionEntityTags(true)
                                              .build());
-        resourceTypes.add(JsonApiResourceType.define("type-models", TypeModel.class)
-                                             .methods(GET.class, POST.class, PATCH.class)
+        resourceTypes.add(JsonApiResourceType.define("tags", Tag.class)
+                                             .versionEntityTags(true)
                                              .build());
+        resourceTypes.add(typeModels().build());
+        return resourceTypes;
+    }
+
+    JsonApiResourceType.Builder<TypeModel> typeModels() {
+        return JsonApiResourceType.define("type-models", TypeModel.class)
+                                  .methods(GET.class, POST.class, PATCH.class);
+    }
+
+    JsonApiResourceType.Builder<Post> posts() {
+        return JsonApiResourceType.define("posts", Post.class)
+                                  .exposedIdAttribute("id", Integer::valueOf)
+                                  .reader("title", String::valueOf);
+    }
+
+    /*
+     * Re-initialize the resource with the default types, replacing those of
+     * the same name with the types given.
+     */
+    EntityMetamodel initialize(JsonApiResourceType<?>... overrides) {
+        Set<JsonApiResourceType<?>> resourceTypes = defaultResourceTypes();
+
+        for (JsonApiResourceType<?> override : overrides) {
+            resourceTypes.remove(override);
+            resourceTypes.add(override);
+        }
+
         target.initialize(resourceTypes);
+        return EntityMetamodel.getInstance(ApiImpl.class, resourceTypes, emf);
+    }
+
+    /*
+     * Registry of a (simulated) JTA transaction, the synchronizations
+     * registered are added to the given list.
+     */
+    TransactionSynchronizationRegistry mockTransactions(List<Synchronization> synchronizations) {
+        TransactionSynchronizationRegistry transactions = Mockito.mock(TransactionSynchronizationRegistry.class);
+        Map<Object, Object> resources = new HashMap<>();
+
+        Mockito.when(transactions.getTransactionKey()).thenReturn("tx");
+        Mockito.when(transactions.getResource(Mockito.any())).then(call -> resources.get(call.getArgument(0)));
+        Mockito.doAnswer(call -> resources.put(call.getArgument(0), call.getArgument(1)))
+               .when(transactions).putResource(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(call -> synchronizations.add(call.getArgument(0)))
+               .when(transactions).registerInterposedSynchronization(Mockito.any());
+
+        return transactions;
+    }
+
+    JsonObject request(String requestUri, String requestMethod, Supplier<Response> responseSupplier) {
+        Mockito.when(target.request.getMethod()).thenReturn(requestMethod);
+        target.uriInfo = new ResteasyUriInfo(requestUri, "/");
+
+        var tx = em.getTransaction();
+        tx.begin();
+        Response response = responseSupplier.get();
+        String responseEntity = readEntity(response);
+        tx.commit();
+
+        return responseEntity != null && !responseEntity.isBlank() ? readObject(responseEntity) : null;
+    }
+
+    long totalResults(String requestUri) {
+        return request(requestUri, "GET", () -> target.index("posts")).getJsonObject("meta")
+                                                                     .getJsonNumber("totalResults")
+                                                                     .longValue();
     }
 
     @AfterEach
     void tearDown() {
-        em.close();
+        if (em.isOpen()) {
+            em.close();
+        }
         emf.close();
     }
 
@@ -147,6 +287,24 @@ class JsonApiResourceTest {
         }
     }
 
+    String readEntity(Response response) {
+        Object entityObject = response.getEntity();
+
+        if (entityObject instanceof StreamingOutput) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            try {
+                ((StreamingOutput) entityObject).write(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+
+        return entityObject != null ? String.valueOf(entityObject) : null;
+    }
+
     void testResourceMethod(String jsonDml,
                             String requestUri,
                             String requestMethod,
@@ -160,22 +318,21 @@ class JsonApiResourceTest {
         Mockito.when(target.request.getMethod()).thenReturn(requestMethod);
         target.uriInfo = new ResteasyUriInfo(requestUri, "/");
         Response response;
+        String responseEntity;
 
         var tx = em.getTransaction();
 
         try {
             tx.begin();
             response = responseSupplier.get();
+            assertNotNull(response);
+            responseEntity = readEntity(response);
             tx.commit();
         } catch (Exception e) {
             tx.rollback();
             throw e;
         }
 
-        assertNotNull(response);
-
-        Object entityObject = response.getEntity();
-        String responseEntity = entityObject != null ? String.valueOf(entityObject) : null;
         assertResponseEquals(expectedStatus, response.getStatus(), expectedResponse, responseEntity);
     }
 
@@ -221,6 +378,47 @@ class JsonApiResourceTest {
                            () -> target.index(resourceType));
     }
 
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/index-get-streaming.txt")
+    void testIndexGetStreaming(String title,
+                               String jsonDml,
+                               String requestUri,
+                               String resourceType,
+                               int expectedStatus,
+                               String expectedResponse)
+            throws JSONException {
+
+        initialize(JsonApiResourceType.define("authors", Author.class).streaming(true).build());
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           "GET",
+                           expectedStatus,
+                           expectedResponse,
+                           () -> target.index(resourceType));
+    }
+
+    @Test
+    void testIndexGetStreamingWrittenAfterClose() throws JSONException {
+        initialize(JsonApiResourceType.define("authors", Author.class).streaming(true).build());
+        executeDml("[{ \"sql\": \"INSERT INTO AUTHORS (id, name) VALUES (1, 'Jane')\" }]");
+
+        Mockito.when(target.request.getMethod()).thenReturn("GET");
+        target.uriInfo = new ResteasyUriInfo("/test/authors?fields[authors]=name", "/");
+
+        var tx = em.getTransaction();
+        tx.begin();
+        Response response = target.index("authors");
+        tx.commit();
+        em.close();
+
+        // Written as by the container, after the resource method's persistence context is gone
+        assertResponseEquals(200,
+                             response.getStatus(),
+                             "{'jsonapi':{'version':'1.0'},'data':[{'type':'authors','id':'1','attributes':{'name':'Jane'},'links':{'self':'/test/authors/1'}}]}",
+                             readEntity(response));
+    }
+
     @ParameterizedTest
     @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/read-get.txt")
     void testReadGet(String title,
@@ -240,6 +438,32 @@ class JsonApiResourceTest {
                            () -> target.read(resourceType, resourceId));
     }
 
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/read-get-conditional.txt")
+    void testReadGetConditional(String title,
+                                String jsonDml,
+                                String requestUri,
+                                String resourceType,
+                                String resourceId,
+                                String ifNoneMatch,
+                                int expectedStatus,
+                                String expectedResponse)
+            throws JSONException {
+
+        Mockito.when(target.request.evaluatePreconditions(Mockito.any(EntityTag.class)))
+               .thenAnswer(invocation -> {
+                   EntityTag etag = invocation.getArgument(0);
+                   return etag.getValue().equals(ifNoneMatch) ? Response.notModified(etag) : null;
+               });
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           "GET",
+                           expectedStatus,
+                           expectedResponse,
+                           () -> target.read(resourceType, resourceId));
+    }
+
     @ParameterizedTest
     @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/read-relationship-get.txt")
     void testReadRelationshipGet(String title,
@@ -260,6 +484,88 @@ class JsonApiResourceTest {
                            () -> target.readRelationship(resourceType, resourceId, relationshipName));
     }
 
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", nullValues = "NONE", files = "src/test/resources/update-relationship.txt")
+    void testUpdateRelationship(String title,
+                                String jsonDml,
+                                String requestUri,
+                                String requestMethod,
+                                String resourceType,
+                                String resourceId,
+                                String relationshipName,
+                                String requestBody,
+                                int expectedStatus,
+                                String expectedResponse,
+                                String expectedLinkage)
+            throws JSONException {
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           requestMethod,
+                           expectedStatus,
+                           expectedResponse,
+                           () -> {
+                               JsonObject input = readObject(requestBody);
+
+                               switch (requestMethod) {
+                               case "POST":
+                                   return target.addRelationship(resourceType, resourceId, relationshipName, input);
+                               case "DELETE":
+                                   return target.deleteRelationship(resourceType, resourceId, relationshipName, input);
+                               default:
+                                   return target.replaceRelationship(resourceType, resourceId, relationshipName, input);
+                               }
+                           });
+
+        if (expectedLinkage != null) {
+            em.clear();
+            testResourceMethod("",
+                               requestUri,
+                               "GET",
+                               200,
+                               expectedLinkage,
+                               () -> target.readRelationship(resourceType, resourceId, relationshipName));
+        }
+    }
+
+    @Test
+    void testUpdateRelationshipInBulkRefreshesResource() {
+        List<String> commentTexts = new ArrayList<>();
+        JsonApiHandler<Post> handler = new JsonApiHandler<>() {
+            @Override
+            public boolean isHandler(String resourceType, String httpMethod) {
+                return "posts".equals(resourceType);
+            }
+
+            @Override
+            public void beforeUpdate(JsonApiContext context, Post entity) {
+                // Pending change flushed before the bulk statements
+                entity.setTitle("Updated");
+                // Members loaded before the bulk statements are refreshed
+                entity.getComments().size();
+            }
+
+            @Override
+            public void afterUpdate(JsonApiContext context, Post entity) {
+                entity.getComments().forEach(comment -> commentTexts.add(comment.getText()));
+            }
+        };
+        mockHandlers(ApplicationScoped.class, handler);
+        initialize();
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 101, 'Comment one.')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, text) VALUES (2, 'Comment two.')\" }]");
+
+        title("/test/posts/101");
+        request("/test/posts/101/relationships/comments",
+                "POST",
+                () -> target.addRelationship("posts", "101", "comments", readObject("{ 'data': [{ 'type': 'comments', 'id': '2' }] }")));
+
+        assertEquals(Set.of("Comment one.", "Comment two."), Set.copyOf(commentTexts));
+        em.clear();
+        assertEquals("Updated", title("/test/posts/101"));
+    }
+
     @ParameterizedTest
     @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/read-related-get.txt")
     void testReadRelatedGet(String title,
@@ -305,6 +611,118 @@ class JsonApiResourceTest {
                            () -> target.patch(resourceType, resourceId, readObject(requestBody)));
     }
 
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", nullValues = "NONE", files = "src/test/resources/update-without-load.txt")
+    void testUpdateWithoutLoad(String title,
+                               String jsonDml,
+                               String requestUri,
+                               String resourceType,
+                               String resourceId,
+                               String requestBody,
+                               int expectedStatus,
+                               String expectedResponse,
+                               String expectedResource)
+            throws JSONException {
+
+        initialize(typeModels().updateWithoutLoad(true).build());
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           "PATCH",
+                           expectedStatus,
+                           expectedResponse,
+                           () -> target.patch(resourceType, resourceId, readObject(requestBody)));
+
+        if (expectedResource != null) {
+            em.clear();
+            testResourceMethod("",
+                               requestUri,
+                               "GET",
+                               200,
+                               expectedResource,
+                               () -> target.read(resourceType, resourceId));
+        }
+    }
+
+    @Test
+    void testUpdateWithNonNumericVersionLoadsResource() {
+        initialize(typeModels().versionAttribute("string").updateWithoutLoad(true).build());
+        executeDml("[{ \"sql\": \"INSERT INTO TYPE_MODELS (id, primitive_int, string, primitive_boolean) VALUES (1, 5, 'before', 0)\" }]");
+
+        JsonObject response = request("/test/type-models/1",
+                                      "PATCH",
+                                      () -> target.patch("type-models", "1", readObject("{ 'data': { 'type': 'type-models', 'id': '1', 'attributes': { 'primitiveInt': 6 }}}")));
+
+        // The resource was loaded and is returned, rather than 204 (No Content)
+        assertNotNull(response);
+        assertEquals(6, response.getJsonObject("data").getJsonObject("attributes").getInt("primitiveInt"));
+    }
+
+    @Test
+    void testUpdateOfNonUpdatableAttributeLoadsResource() {
+        initialize(JsonApiResourceType.define("readonly-codes", ReadOnlyCode.class)
+                                      .methods(GET.class, PATCH.class)
+                                      .updateWithoutLoad(true)
+                                      .build());
+        executeDml("[{ \"sql\": \"INSERT INTO RO_CODES (id, title, text, version) VALUES (1, 'One', 'First', 1)\" }]");
+
+        JsonObject response = request("/test/readonly-codes/1",
+                                      "PATCH",
+                                      () -> target.patch("readonly-codes", "1", readObject("{ 'data': { 'type': 'readonly-codes', 'id': '1', 'attributes': { 'title': 'Uno', 'text': 'Primero' }}}")));
+
+        // The resource was loaded and merged, the title column is not updated
+        assertNotNull(response);
+        em.clear();
+        JsonObject attributes = request("/test/readonly-codes/1", "GET", () -> target.read("readonly-codes", "1")).getJsonObject("data")
+                                                                                                                   .getJsonObject("attributes");
+        assertEquals("One", attributes.getString("title"));
+        assertEquals("Primero", attributes.getString("text"));
+    }
+
+    @Test
+    void testUpdateWithPrincipalRelationshipPathLoadsResource() {
+        initialize(posts().principalNamePath("author.name").updateWithoutLoad(true).build());
+        executeDml("[{ \"sql\": \"INSERT INTO AUTHORS (id, name) VALUES (1, 'alice')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title, author_id) VALUES (101, 'One', 1)\" }]");
+        Mockito.when(target.security.getUserPrincipal()).thenReturn(() -> "alice");
+
+        JsonObject response = request("/test/posts/101",
+                                      "PATCH",
+                                      () -> target.patch("posts", "101", readObject("{ 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Uno' }}}")));
+
+        // The resource was loaded and is returned, rather than 204 (No Content)
+        assertNotNull(response);
+        em.clear();
+        assertEquals("Uno", title("/test/posts/101"));
+    }
+
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", nullValues = "NONE", files = "src/test/resources/write-conditional.txt")
+    void testWriteConditional(String title,
+                              String jsonDml,
+                              String requestUri,
+                              String requestMethod,
+                              String resourceType,
+                              String resourceId,
+                              String ifMatch,
+                              String requestBody,
+                              int expectedStatus,
+                              String expectedResponse)
+            throws JSONException {
+
+        target.headers = Mockito.mock(HttpHeaders.class);
+        Mockito.when(target.headers.getHeaderString(HttpHeaders.IF_MATCH)).thenReturn(ifMatch);
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           requestMethod,
+                           expectedStatus,
+                           expectedResponse,
+                           () -> "DELETE".equals(requestMethod)
+                                   ? target.delete(resourceType, resourceId)
+                                   : target.patch(resourceType, resourceId, readObject(requestBody)));
+    }
+
     @ParameterizedTest
     @CsvFileSource(
         delimiter = '|',
@@ -327,6 +745,71 @@ class JsonApiResourceTest {
                            () -> target.delete(resourceType, resourceId));
     }
 
+    @ParameterizedTest
+    @CsvFileSource(delimiter = '|', lineSeparator = "@\n", files = "src/test/resources/atomic-operations.txt")
+    void testAtomicOperations(String title,
+                              String jsonDml,
+                              String requestUri,
+                              String requestBody,
+                              int expectedStatus,
+                              String expectedResponse)
+            throws JSONException {
+
+        testResourceMethod(jsonDml,
+                           requestUri,
+                           "POST",
+                           expectedStatus,
+                           expectedResponse,
+                           () -> {
+                               try {
+                                   return target.operations(readObject(requestBody));
+                               } catch (WebApplicationException e) {
+                                   // Roll back as the transactional resource class would
+                                   em.getTransaction().rollback();
+                                   em.getTransaction().begin();
+                                   return e.getResponse();
+                               }
+                           });
+    }
+
+    @Test
+    void testAtomicOperationsDeferredFlush() {
+        EntityMetamodel model = initialize(posts().resourceCache(Duration.ofMinutes(1), 10).build());
+        ExpiringCache<String, JsonObject> cache = model.getEntityMeta("posts").getResourceCache();
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (102, 'Two')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 102, 'Comment one.')\" }]");
+        assertEquals("One", title("/test/posts/101"));
+
+        Mockito.when(target.request.getMethod()).thenReturn("POST");
+        target.uriInfo = new ResteasyUriInfo("/test/operations", "/");
+        em.getTransaction().begin();
+        // Removing the post fails only once the changes are flushed
+        JsonObject failing = readObject("{ 'atomic:operations': ["
+                + "{ 'op': 'update', 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Uno' }}},"
+                + "{ 'op': 'remove', 'ref': { 'type': 'posts', 'id': '102' }}]}");
+        WebApplicationException failure = assertThrows(WebApplicationException.class, () -> target.operations(failing));
+        em.getTransaction().rollback();
+        em.clear();
+
+        JsonObject error = ((JsonObject) failure.getResponse().getEntity()).getJsonArray("errors").getJsonObject(0);
+        assertEquals(Status.CONFLICT.getStatusCode(), failure.getResponse().getStatus());
+        assertEquals("/atomic:operations", error.getJsonObject("source").getString("pointer"));
+        // Nothing was changed, cached results remain in effect
+        assertEquals(1, cache.size());
+        assertEquals("One", title("/test/posts/101"));
+
+        // Changes are no longer deferred following the failure
+        request("/test/posts/101", "PATCH", () -> target.patch("posts", "101", readObject("{ 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Eins' }}}")));
+        assertEquals(0, cache.size());
+        assertEquals("Eins", title("/test/posts/101"));
+
+        request("/test/operations", "POST", () -> target.operations(readObject("{ 'atomic:operations': ["
+                + "{ 'op': 'update', 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Uno' }}}]}")));
+        assertEquals(0, cache.size());
+        assertEquals("Uno", title("/test/posts/101"));
+    }
+
     @ParameterizedTest
     @ValueSource(
         strings = {
@@ -335,9 +818,528 @@ class JsonApiResourceTest {
     void testGetClient(String requestUri) throws IOException {
         target.uriInfo = new ResteasyUriInfo(requestUri, "/");
         Response response = target.getClient();
-        String clientScript = (String) response.getEntity();
+        String clientScript = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         String firstLine = clientScript.lines().findFirst().orElse("");
         String expected = String.format("const baseAdminUrl = '%s';", requestUri.substring(0, requestUri.lastIndexOf('/')));
         assertEquals(expected, firstLine);
     }
+
+    @Test
+    void testGetClientGzip() throws IOException {
+        String requestUri = "http://localhost:8080/test/client.js";
+        target.uriInfo = new ResteasyUriInfo(requestUri, "/");
+        target.headers = Mockito.mock(HttpHeaders.class);
+        Mockito.when(target.headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("br;q=1.0, gzip;q=0.8");
+
+        Response response = target.getClient();
+        assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+
+        try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream((byte[]) response.getEntity()))) {
+            String clientScript = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("const baseAdminUrl = 'http://localhost:8080/test';", clientScript.lines().findFirst().orElse(""));
+        }
+
+        Mockito.when(target.headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip;q=0");
+        Response identity = target.getClient();
+        assertNull(identity.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        assertNotEquals(response.getEntityTag(), identity.getEntityTag());
+    }
+
+    static class UniqueName {
+        @NotNull(payload = JsonApiValidationMode.DatabaseAccess.class)
+        String name;
+    }
+
+    static class NamedHolder {
+        @Valid
+        UniqueName name;
+    }
+
+    static class NamedElements {
+        List<@Valid UniqueName> names;
+    }
+
+    static class NamedCollection {
+        @Valid
+        List<UniqueName> names;
+    }
+
+    static class NestedNamedElements {
+        Map<String, List<@Valid UniqueName>> names;
+    }
+
+    static class ElementConstraints {
+        List<@NotNull(payload = JsonApiValidationMode.DatabaseAccess.class) String> names;
+    }
+
+    static class PlainElements {
+        List<@NotNull String> names;
+    }
+
+    @Test
+    void testValidationRequiresNewTransaction() {
+        TransactionalValidator validator = target.txValidator;
+
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION, Comment.class));
+        assertFalse(validator.requiresNewTransaction(JsonApiValidationMode.CALLER_TRANSACTION, UniqueName.class));
+        assertFalse(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, Comment.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, UniqueName.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, NamedHolder.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, NamedElements.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, NamedCollection.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, NestedNamedElements.class));
+        assertTrue(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, ElementConstraints.class));
+        assertFalse(validator.requiresNewTransaction(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED, PlainElements.class));
+    }
+
+    @Test
+    void testValidationTransactionRouting() {
+        target.txValidator = Mockito.spy(target.txValidator);
+        initialize(posts().validationMode(JsonApiValidationMode.NEW_TRANSACTION_IF_REQUIRED).build(),
+                   JsonApiResourceType.define("comments", Comment.class)
+                                      .validationMode(JsonApiValidationMode.CALLER_TRANSACTION)
+                                      .build(),
+                   typeModels().updateWithoutLoad(true).build());
+
+        request("/test/authors", "POST", () -> target.create("authors", readObject("{ 'data': { 'type': 'authors', 'attributes': { 'name': 'One' }}}")));
+        Mockito.verify(target.txValidator).validate(Mockito.eq("POST"), Mockito.any(Author.class), Mockito.any(Class[].class));
+
+        // Post has no constraint requiring database access
+        request("/test/posts", "POST", () -> target.create("posts", readObject("{ 'data': { 'type': 'posts', 'attributes': { 'title': 'One' }}}")));
+        Mockito.verify(target.txValidator, Mockito.never()).validate(Mockito.anyString(), Mockito.any(Post.class), Mockito.any(Class[].class));
+        Mockito.verify(target.txValidator).validateInCallerTransaction(Mockito.eq("POST"), Mockito.any(Post.class), Mockito.any(Class[].class));
+
+        request("/test/comments", "POST", () -> target.create("comments", readObject("{ 'data': { 'type': 'comments', 'attributes': { 'text': 'One' }}}")));
+        Mockito.verify(target.txValidator, Mockito.never()).validate(Mockito.anyString(), Mockito.any(Comment.class), Mockito.any(Class[].class));
+        Mockito.verify(target.txValidator).validateInCallerTransaction(Mockito.eq("POST"), Mockito.any(Comment.class), Mockito.any(Class[].class));
+
+        executeDml("[{ \"sql\": \"INSERT INTO TYPE_MODELS (id, primitive_int, primitive_boolean) VALUES (1, 5, 0)\" }]");
+        request("/test/type-models/1", "PATCH", () -> target.patch("type-models", "1", readObject("{ 'data': { 'type': 'type-models', 'id': '1', 'attributes': { 'string': 'One' }}}")));
+        Mockito.verify(target.txValidator).validateValues(Mockito.eq("PATCH"), Mockito.eq(TypeModel.class), Mockito.anyMap(), Mockito.any(Class[].class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "validate", "validateValues" })
+    void testValidationInNewTransaction(String methodName) {
+        Method method = Arrays.stream(TransactionalValidator.class.getMethods())
+                              .filter(m -> m.getName().equals(methodName))
+                              .findFirst()
+                              .orElseThrow();
+        Transactional transactional = method.getAnnotation(Transactional.class);
+
+        assertNotNull(transactional);
+        assertEquals(TxType.REQUIRES_NEW, transactional.value());
+    }
+
+    @Test
+    void testReadInSingleTransaction() {
+        List<Boolean> transactionActive = new ArrayList<>();
+        JsonApiHandler<Post> handler = new JsonApiHandler<>() {
+            @Override
+            public boolean isHandler(String resourceType, String httpMethod) {
+                return "posts".equals(resourceType);
+            }
+
+            @Override
+            public void afterFind(JsonApiContext context, Post entity) {
+                transactionActive.add(em.getTransaction().isActive());
+            }
+        };
+        mockHandlers(ApplicationScoped.class, handler);
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (1, 'One')\" }]");
+
+        Mockito.when(target.request.getMethod()).thenReturn("GET");
+        target.uriInfo = new ResteasyUriInfo("/test/posts/1", "/");
+        Response response = target.read("posts", "1");
+
+        assertEquals(200, response.getStatus());
+        assertEquals(List.of(true), transactionActive);
+        assertFalse(em.getTransaction().isActive());
+    }
+
+    static class CountingHandler implements JsonApiHandler<Post> {
+        int found;
+
+        @Override
+        public boolean isHandler(String resourceType, String httpMethod) {
+            return "posts".equals(resourceType);
+        }
+
+        @Override
+        public void afterFind(JsonApiContext context, Post entity) {
+            found++;
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(classes = { ApplicationScoped.class, Dependent.class })
+    void testHandlersResolvedByScope(Class<? extends Annotation> scope) {
+        CountingHandler handler = new CountingHandler();
+        mockHandlers(scope, handler);
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" }]");
+
+        request("/test/posts/101", "GET", () -> target.read("posts", "101"));
+        request("/test/posts/101", "GET", () -> target.read("posts", "101"));
+
+        assertEquals(2, handler.found);
+        // Normal scoped handlers are resolved once, others for each request
+        int expectedResolutions = scope == ApplicationScoped.class ? 1 : 2;
+        Mockito.verify(target.handlers, Mockito.times(expectedResolutions)).handles();
+    }
+
+    @Test
+    void testTotalCountCache() {
+        List<Synchronization> synchronizations = new ArrayList<>();
+        ((ApiImpl) target).transactions = mockTransactions(synchronizations);
+        EntityMetamodel model = initialize(posts().totalCountCache(Duration.ofMinutes(1), 10).build());
+        ExpiringCache<String, Long> cache = model.getEntityMeta("posts").getTotalCountCache();
+        final String uri = "/test/posts?page[size]=1&fields[posts]=title";
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (102, 'Two')\" }]");
+
+        assertEquals(2, totalResults(uri));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Not made through the API, the cached total remains in effect
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (103, 'Three')\" }]");
+        assertEquals(2, totalResults(uri));
+        assertEquals(1, cache.getHitCount());
+
+        request("/test/posts", "POST", () -> target.create("posts", readObject("{ 'data': { 'type': 'posts', 'attributes': { 'title': 'Four' }}}")));
+        assertEquals(0, cache.size());
+        assertEquals(1, synchronizations.size());
+
+        assertEquals(4, totalResults(uri));
+        assertEquals(2, cache.getMissCount());
+
+        // Invalidated again once the transaction completes
+        synchronizations.get(0).afterCompletion(jakarta.transaction.Status.STATUS_COMMITTED);
+        assertEquals(0, cache.size());
+
+        request("/test/posts/103", "DELETE", () -> target.delete("posts", "103"));
+        assertEquals(3, totalResults(uri));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    String title(String requestUri) {
+        return request(requestUri, "GET", () -> target.read("posts", "101")).getJsonObject("data")
+                                                                          .getJsonObject("attributes")
+                                                                          .getString("title");
+    }
+
+    @Test
+    void testQueryPlansReusedByShape() {
+        EntityMetamodel model = initialize();
+        ExpiringCache<String, Object> plans = model.getEntityMeta("posts").getQueryPlans();
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (102, 'Two')\" }]");
+
+        assertEquals("One", title("/test/posts/101"));
+        final int planCount = plans.size();
+        final long hitCount = plans.getHitCount();
+
+        // Same shape, only the values bound differ
+        JsonObject second = request("/test/posts/102", "GET", () -> target.read("posts", "102"));
+        assertEquals("Two", second.getJsonObject("data").getJsonObject("attributes").getString("title"));
+        assertEquals(planCount, plans.size());
+        assertTrue(plans.getHitCount() > hitCount);
+
+        // A query of the cached shape may be created by any EntityManager of the factory
+        EntityManager other = emf.createEntityManager();
+
+        try {
+            target.persistenceContext = other;
+            target.initialize(defaultResourceTypes());
+            assertEquals("One", title("/test/posts/101"));
+            assertEquals(planCount, plans.size());
+        } finally {
+            target.persistenceContext = em;
+            target.initialize(defaultResourceTypes());
+            other.close();
+        }
+    }
+
+    @Test
+    void testResourceCache() {
+        EntityMetamodel model = initialize(posts().resourceCache(Duration.ofMinutes(1), 10).build());
+        ExpiringCache<String, JsonObject> cache = model.getEntityMeta("posts").getResourceCache();
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" }]");
+
+        assertEquals("One", title("/test/posts/101"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Not made through the API, the cached response remains in effect
+        executeDml("[{ \"sql\": \"UPDATE POSTS SET title = 'Uno' WHERE id = 101\" }]");
+        assertEquals("One", title("/test/posts/101"));
+        assertEquals(1, cache.getHitCount());
+
+        // Responses are cached separately by representation, base URI and user
+        assertEquals("Uno", title("/test/posts/101?fields[posts]=title"));
+        assertEquals("Uno", title("http://other.example.com/test/posts/101"));
+        Mockito.when(target.security.getUserPrincipal()).thenReturn(() -> "alice");
+        assertEquals("Uno", title("/test/posts/101"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+
+        request("/test/posts/101", "PATCH", () -> target.patch("posts", "101", readObject("{ 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Eins' }}}")));
+        assertEquals(0, cache.size());
+        assertEquals("Eins", title("/test/posts/101"));
+        assertEquals(5, cache.getMissCount());
+    }
+
+    @Test
+    void testResourceCacheStatistics() {
+        initialize(posts().resourceCache(Duration.ofMinutes(1), 1).build());
+        assertNull(target.getResourceCacheStatistics("comments"));
+        assertNull(target.getResourceCacheStatistics("unknown"));
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (102, 'Two')\" }]");
+
+        assertEquals("One", title("/test/posts/101"));
+        assertEquals("One", title("/test/posts/101"));
+        // Evicts the response of post 101
+        request("/test/posts/102", "GET", () -> target.read("posts", "102"));
+
+        JsonApiCacheStatistics statistics = target.getResourceCacheStatistics("posts");
+        assertEquals(1, statistics.getSize());
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+
+        // Writes to types not connected to posts leave the cache in place
+        request("/test/type-models", "POST", () -> target.create("type-models", readObject("{ 'data': { 'type': 'type-models', 'attributes': { 'string': 'Unrelated' }}}")));
+        assertEquals(1, target.getResourceCacheStatistics("posts").getSize());
+
+        // Writes to connected types discard the cached responses
+        request("/test/comments", "POST", () -> target.create("comments", readObject("{ 'data': { 'type': 'comments', 'attributes': { 'text': 'Hello' }}}")));
+        assertEquals(0, target.getResourceCacheStatistics("posts").getSize());
+    }
+
+    @Test
+    void testResourceCacheNotUsedWithFindHook() {
+        List<Post> found = new ArrayList<>();
+        JsonApiHandler<Post> handler = new JsonApiHandler<>() {
+            @Override
+            public boolean isHandler(String resourceType, String httpMethod) {
+                return "posts".equals(resourceType);
+            }
+
+            @Override
+            public void afterFind(JsonApiContext context, Post entity) {
+                found.add(entity);
+            }
+        };
+        mockHandlers(ApplicationScoped.class, handler);
+        EntityMetamodel model = initialize(posts().resourceCache(Duration.ofMinutes(1), 10).build());
+        ExpiringCache<String, JsonObject> cache = model.getEntityMeta("posts").getResourceCache();
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" }]");
+
+        assertEquals("One", title("/test/posts/101"));
+        assertEquals("One", title("/test/posts/101"));
+        assertEquals(2, found.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void testVersionTagWithRelationships() {
+        initialize(posts().versionAttribute("text").versionEntityTags(true).build());
+        List<EntityTag> evaluated = new ArrayList<>();
+        Mockito.when(target.request.getMethod()).thenReturn("GET");
+        Mockito.when(target.request.evaluatePreconditions(Mockito.any(EntityTag.class)))
+               .thenAnswer(invocation -> {
+                   EntityTag etag = invocation.getArgument(0);
+                   evaluated.add(etag);
+                   return null;
+               });
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title, text) VALUES (101, 'One', 'v1')\" }]");
+
+        target.uriInfo = new ResteasyUriInfo("/test/posts/101?fields[posts]=title", "/");
+        Response response = target.read("posts", "101");
+        // Evaluated before the resource is read, the tag is derived from the version
+        assertTrue(evaluated.get(0).getValue().startsWith("v1;"));
+        assertEquals(evaluated.get(0), response.getEntityTag());
+
+        target.uriInfo = new ResteasyUriInfo("/test/posts/101", "/");
+        EntityTag first = target.read("posts", "101").getEntityTag();
+
+        executeDml("[{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 101, 'First')\" }]");
+
+        EntityTag second = target.read("posts", "101").getEntityTag();
+        assertTrue(first.getValue().startsWith("v1;"));
+        assertTrue(second.getValue().startsWith("v1;"));
+        // The comment count changed while the version did not
+        assertNotEquals(first, second);
+        assertEquals(second, evaluated.get(evaluated.size() - 1));
+    }
+
+    @Test
+    void testConcurrentQueries() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Runnable> submitted = new ArrayList<>();
+        ((ApiImpl) target).queryExecutor = task -> {
+            submitted.add(task);
+            executor.execute(task);
+        };
+        initialize(posts().concurrentQueries(true).build());
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (102, 'Two')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 101, 'First')\" }]");
+
+        try {
+            // Total is known from the short page, only the relationships are counted
+            assertEquals(2, totalResults("/test/posts?page[size]=5"));
+            assertEquals(1, submitted.size());
+
+            submitted.clear();
+            assertEquals(2, totalResults("/test/posts?page[size]=1"));
+            assertEquals(2, submitted.size());
+
+            submitted.clear();
+            JsonObject response = request("/test/posts?page[size]=1&include=comments", "GET", () -> target.index("posts"));
+            assertEquals(2, response.getJsonObject("meta").getInt("totalResults"));
+            assertEquals(1, response.getJsonArray("included").size());
+            assertTrue(submitted.size() > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testResponseCache() {
+        EntityMetamodel model = initialize(JsonApiResourceType.define("comments", Comment.class)
+                                                              .responseCache(Duration.ofMinutes(1), 2)
+                                                              .build());
+        ExpiringCache<String, JsonObject> cache = model.getEntityMeta("comments").getResponseCache();
+        final String uri = "/test/comments";
+        Supplier<JsonArray> comments = () -> request(uri, "GET", () -> target.index("comments")).getJsonArray("data");
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 101, 'First')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (2, 101, 'Second')\" }]");
+
+        assertEquals(2, comments.get().size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Not made through the API, the cached response remains in effect
+        executeDml("[{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (3, 101, 'Third')\" }]");
+        assertEquals(2, comments.get().size());
+        assertEquals(1, cache.getHitCount());
+
+        request("/test/comments/1", "PATCH", () -> target.patch("comments", "1", readObject("{ 'data': { 'type': 'comments', 'id': '1', 'attributes': { 'text': 'Premier' }}}")));
+        assertEquals(0, cache.size());
+        JsonArray fresh = comments.get();
+        assertEquals(3, fresh.size());
+        assertEquals("Premier", fresh.getJsonObject(0).getJsonObject("attributes").getString("text"));
+        assertEquals(2, cache.getMissCount());
+
+        request("/test/comments/3", "DELETE", () -> target.delete("comments", "3"));
+        assertEquals(0, cache.size());
+        assertEquals(2, comments.get().size());
+        assertEquals(3, cache.getMissCount());
+
+        // The least recently used response is evicted
+        request("/test/comments?sort=-text", "GET", () -> target.index("comments"));
+        request("/test/comments?sort=text", "GET", () -> target.index("comments"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testRelatedTotalCountCacheInvalidated() {
+        EntityMetamodel model = initialize(JsonApiResourceType.define("comments", Comment.class)
+                                                              .totalCountCache(Duration.ofMinutes(1), 10)
+                                                              .build());
+        ExpiringCache<String, Long> cache = model.getEntityMeta("comments").getTotalCountCache();
+
+        executeDml("[{ \"sql\": \"INSERT INTO POSTS (id, title) VALUES (101, 'One')\" },"
+                + "{ \"sql\": \"INSERT INTO COMMENTS (id, post_id, text) VALUES (1, 101, 'First')\" }]");
+
+        request("/test/comments?page[size]=1&filter[post.title]=One", "GET", () -> target.index("comments"));
+        assertEquals(1, cache.size());
+
+        // Changing a post may change the comments matched through the post
+        request("/test/posts/101", "PATCH", () -> target.patch("posts", "101", readObject("{ 'data': { 'type': 'posts', 'id': '101', 'attributes': { 'title': 'Uno' }}}")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testGetInstanceByFactoryAndConfiguration() {
+        Set<JsonApiResourceType<?>> types = Set.of(JsonApiResourceType.define("posts", Post.class).build());
+        Set<JsonApiResourceType<?>> sameTypes = Set.of(JsonApiResourceType.define("posts", Post.class).build());
+        Set<JsonApiResourceType<?>> otherTypes = Set.of(JsonApiResourceType.define("posts", Post.class)
+                                                                           .totalCountCache(Duration.ofMinutes(1), 10)
+                                                                           .build());
+        EntityMetamodel model = EntityMetamodel.getInstance(ApiImpl.class, types, emf);
+
+        assertSame(model, EntityMetamodel.getInstance(ApiImpl.class, sameTypes, emf));
+        assertNotSame(model, EntityMetamodel.getInstance(ApiImpl.class, otherTypes, emf));
+
+        EntityManagerFactory otherEmf = Persistence.createEntityManagerFactory("test");
+
+        try {
+            EntityMetamodel otherModel = EntityMetamodel.getInstance(ApiImpl.class, otherTypes, otherEmf);
+            assertNotSame(otherModel, EntityMetamodel.getInstance(ApiImpl.class, otherTypes, emf));
+            assertSame(otherModel, EntityMetamodel.getInstance(ApiImpl.class, otherTypes, otherEmf));
+        } finally {
+            otherEmf.close();
+        }
+    }
+
+    @Test
+    void testGetEntityMetaConcurrently() throws Exception {
+        EntityMetamodel model = new EntityMetamodel(ApiImpl.class,
+                                                    Set.of(JsonApiResourceType.define("posts", Post.class).build(),
+                                                           JsonApiResourceType.define("comments", Comment.class).build()),
+                                                    em.getMetamodel());
+        Map<Class<?>, String> expected = new HashMap<>();
+        expected.put(Post.class, "posts");
+        expected.put(PostSubclass.class, "posts");
+        expected.put(em.getReference(Post.class, 1L).getClass(), "posts");
+        expected.put(Comment.class, "comments");
+        expected.put(String.class, null);
+
+        List<Class<?>> classes = List.copyOf(expected.keySet());
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                results.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    start.await();
+
+                    for (int i = 0; i < 10_000; i++) {
+                        Class<?> entityClass = classes.get((i + offset) % classes.size());
+                        EntityMeta meta = model.getEntityMeta(entityClass);
+                        String resourceType = meta != null ? meta.getResourceType() : null;
+
+                        if (!Objects.equals(expected.get(entityClass), resourceType)) {
+                            mismatches++;
+                        }
+                    }
+
+                    return mismatches;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
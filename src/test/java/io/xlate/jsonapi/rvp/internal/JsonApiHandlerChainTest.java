@@ -0,0 +1,93 @@
+package io.xlate.jsonapi.rvp.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.xlate.jsonapi.rvp.JsonApiContext;
+import io.xlate.jsonapi.rvp.JsonApiHandler;
+
+class JsonApiHandlerChainTest {
+
+    static class FindHandler implements JsonApiHandler<Object> {
+        @Override
+        public boolean isHandler(String resourceType, String httpMethod) {
+            return true;
+        }
+
+        @Override
+        public void afterFind(JsonApiContext context, Object entity) {
+            // Implemented by the bean
+        }
+    }
+
+    /*
+     * Stands in for a client proxy of a FindHandler bean, overriding every
+     * method to delegate to the bean instance.
+     */
+    static class FindHandlerProxy extends FindHandler {
+        final List<String> invoked = new ArrayList<>();
+
+        @Override
+        public void onRequest(JsonApiContext context) {
+            invoked.add("onRequest");
+        }
+
+        @Override
+        public void afterFind(JsonApiContext context, Object entity) {
+            invoked.add("afterFind");
+        }
+
+        @Override
+        public void beforeUpdate(JsonApiContext context, Object entity) {
+            invoked.add("beforeUpdate");
+        }
+
+        @Override
+        public void beforeResponse(JsonApiContext context) {
+            invoked.add("beforeResponse");
+        }
+    }
+
+    @Test
+    void testHooksOfImplementationClassInvoked() {
+        FindHandlerProxy proxy = new FindHandlerProxy();
+        JsonApiHandlerChain chain = new JsonApiHandlerChain(List.of(proxy), List.of(FindHandler.class));
+        JsonApiContext context = Mockito.mock(JsonApiContext.class);
+
+        chain.onRequest(context);
+        chain.afterFind(context, new Object());
+        chain.beforeUpdate(context, new Object());
+        chain.beforeResponse(context);
+
+        assertEquals(List.of("afterFind"), proxy.invoked);
+        assertTrue(JsonApiHandlerChain.hasFindHooks(chain));
+        assertFalse(JsonApiHandlerChain.hasEntityUpdateHooks(chain));
+    }
+
+    @Test
+    void testUnknownImplementationInvokesEveryHook() {
+        FindHandlerProxy proxy = new FindHandlerProxy();
+        JsonApiHandlerChain chain = new JsonApiHandlerChain(List.of(proxy), Arrays.asList((Class<?>) null));
+        JsonApiContext context = Mockito.mock(JsonApiContext.class);
+
+        chain.onRequest(context);
+        chain.beforeUpdate(context, new Object());
+
+        assertEquals(List.of("onRequest", "beforeUpdate"), proxy.invoked);
+        assertTrue(JsonApiHandlerChain.hasEntityUpdateHooks(chain));
+    }
+
+    @Test
+    void testDefaultHandlerHasNoHooks() {
+        assertFalse(JsonApiHandlerChain.hasFindHooks(new DefaultJsonApiHandler()));
+        assertFalse(JsonApiHandlerChain.hasEntityUpdateHooks(new DefaultJsonApiHandler()));
+    }
+}
@@ -0,0 +1,108 @@
+package io.xlate.jsonapi.rvp.internal.persistence.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.jsonapi.rvp.internal.JsonApiErrorException;
+
+class PropertyAccessorTest {
+
+    static class Bean {
+        private String name;
+        private int count;
+        private final long fixed = 1L;
+        private int calls;
+
+        public String getName() {
+            calls++;
+            return name;
+        }
+
+        public void setName(String name) {
+            calls++;
+            this.name = name;
+        }
+
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    static class BeanProxy extends Bean {
+        boolean initialized;
+
+        @Override
+        public String getName() {
+            initialized = true;
+            return super.getName();
+        }
+    }
+
+    static PropertyAccessor accessor(String name, boolean withMethods) throws Exception {
+        PropertyDescriptor descriptor = withMethods ? descriptor(name) : null;
+        return new PropertyAccessor(Bean.class, descriptor, Bean.class.getDeclaredField(name));
+    }
+
+    static PropertyDescriptor descriptor(String name) throws IntrospectionException {
+        return new PropertyDescriptor(name, Bean.class);
+    }
+
+    @Test
+    void testAccessorMethodsPreferredToField() throws Exception {
+        PropertyAccessor accessor = accessor("name", true);
+        Bean bean = new Bean();
+
+        accessor.set(bean, "value");
+        assertEquals("value", accessor.get(bean));
+        assertEquals(2, bean.calls);
+    }
+
+    @Test
+    void testAccessorMethodsOfSubclass() throws Exception {
+        PropertyAccessor accessor = accessor("name", true);
+        BeanProxy bean = new BeanProxy();
+
+        accessor.set(bean, "value");
+        assertEquals("value", accessor.get(bean));
+        assertTrue(bean.initialized);
+    }
+
+    @Test
+    void testFieldWithoutAccessorMethods() throws Exception {
+        PropertyAccessor accessor = accessor("count", false);
+        Bean bean = new Bean();
+
+        accessor.set(bean, 3);
+        assertEquals(3, bean.count);
+        assertEquals(Integer.valueOf(3), accessor.get(bean));
+    }
+
+    @Test
+    void testFinalFieldNotWritable() throws Exception {
+        PropertyAccessor accessor = accessor("fixed", false);
+        Bean bean = new Bean();
+
+        assertEquals(Long.valueOf(1L), accessor.get(bean));
+        assertThrows(JsonApiErrorException.class, () -> accessor.set(bean, 2L));
+    }
+
+    @Test
+    void testFailureCausePropagated() throws Exception {
+        PropertyAccessor accessor = new PropertyAccessor(Bean.class, new PropertyDescriptor("broken", Bean.class, "getBroken", null), null);
+        Bean bean = new Bean();
+
+        JsonApiErrorException error = assertThrows(JsonApiErrorException.class, () -> accessor.get(bean));
+        assertEquals(IllegalStateException.class, error.getCause().getClass());
+        assertEquals("broken", error.getCause().getMessage());
+
+        JsonApiErrorException typeError = assertThrows(JsonApiErrorException.class, () -> accessor("name", true).set(bean, 1));
+        assertSame(ClassCastException.class, typeError.getCause().getClass());
+    }
+}
@@ -0,0 +1,83 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.UriBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.xlate.jsonapi.rvp.JsonApiResource;
+
+class LinkTemplateTest {
+
+    @Path("/test")
+    static class ApiImpl extends JsonApiResource {
+    }
+
+    @Test
+    void testExpandResourceMethod() {
+        LinkTemplate template = new LinkTemplate(ApiImpl.class, "read");
+        assertEquals("http://example.com/api/test/posts/1", template.expand("http://example.com/api/", "posts", 1));
+        assertEquals("http://example.com/api/test/posts/1", template.expand("http://example.com/api", "posts", 1));
+    }
+
+    @Test
+    void testExpandRegexVariables() {
+        LinkTemplate template = new LinkTemplate("/{type: [a-z]+}/{id : \\d{1,3}}/relationships/{rel}");
+        assertEquals("/api/posts/12/relationships/author", template.expand("/api/", "posts", "12", "author"));
+    }
+
+    @Test
+    void testExpandRepeatedVariable() {
+        LinkTemplate template = new LinkTemplate("/{type}/{id}/{type}");
+        assertEquals("/posts/1/posts", template.expand("", "posts", 1));
+    }
+
+    @Test
+    void testExpandWithoutVariables() {
+        LinkTemplate template = new LinkTemplate("/operations");
+        assertEquals("http://example.com/operations", template.expand("http://example.com/"));
+    }
+
+    @Test
+    void testUnterminatedVariable() {
+        assertThrows(IllegalArgumentException.class, () -> new LinkTemplate("/{type/{id}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "plain-id_1.0~x",
+        "a b",
+        "a/b",
+        "a?b#c",
+        "100%",
+        "key=value;p:q@r",
+        "[brackets]{braces}",
+        "caf\u00e9",
+        "\ud83d\ude00",
+        "quote\"back\\slash"
+    })
+    void testEncodeSegmentMatchesUriBuilder(String value) {
+        LinkTemplate template = new LinkTemplate("/posts/{id}");
+        String expected = UriBuilder.fromUri("http://example.com/").path("/posts/{id}").build(value).toString();
+        assertEquals(expected, template.expand("http://example.com/", value));
+    }
+
+    @Test
+    void testEncodeReservedCharacters() {
+        StringBuilder target = new StringBuilder();
+        LinkTemplate.encodeSegment(target, "a/b?c#d%e f");
+        assertEquals("a%2Fb%3Fc%23d%25e%20f", target.toString());
+    }
+
+    @Test
+    void testEncodeSubDelimitersUnchanged() {
+        StringBuilder target = new StringBuilder();
+        LinkTemplate.encodeSegment(target, "!$&'()*+,;=:@");
+        assertEquals("!$&'()*+,;=:@", target.toString());
+    }
+}
@@ -0,0 +1,154 @@
+package io.xlate.jsonapi.rvp.internal.rs.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.ws.rs.Path;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.xlate.jsonapi.rvp.JsonApiResource;
+import io.xlate.jsonapi.rvp.JsonApiResourceType;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.Entity;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMeta;
+import io.xlate.jsonapi.rvp.internal.persistence.entity.EntityMetamodel;
+import io.xlate.jsonapi.rvp.test.entity.TypeModel;
+
+class SerializationPlanTest {
+
+    @Path("/test")
+    static class ApiImpl extends JsonApiResource {
+    }
+
+    static EntityManagerFactory emf;
+    static EntityMeta meta;
+
+    @BeforeAll
+    static void setUp() {
+        emf = Persistence.createEntityManagerFactory("test");
+        EntityMetamodel model = new EntityMetamodel(ApiImpl.class,
+                                                    Set.of(JsonApiResourceType.define("type-models", TypeModel.class).build()),
+                                                    emf.getMetamodel());
+        meta = model.getEntityMeta("type-models");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        emf.close();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static JsonValue write(Class<?> javaType, Object value) {
+        SingularAttribute attribute = Mockito.mock(SingularAttribute.class);
+        Mockito.when(attribute.getJavaType()).thenReturn(javaType);
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        SerializationPlan.writer(attribute).write(builder, "value", value);
+        return builder.build().get("value");
+    }
+
+    @Test
+    void testWritePrimitives() {
+        assertEquals(JsonValue.TRUE, write(boolean.class, Boolean.TRUE));
+        assertEquals(Json.createValue(42), write(int.class, 42));
+        assertEquals(Json.createValue(42L), write(long.class, 42L));
+        assertEquals(Json.createValue(1.5d), write(double.class, 1.5d));
+        assertEquals(Json.createValue(1.5d), write(float.class, 1.5f));
+    }
+
+    @Test
+    void testWriteWrappersAndNumbers() {
+        assertEquals(JsonValue.FALSE, write(Boolean.class, Boolean.FALSE));
+        assertEquals(Json.createValue(Integer.MAX_VALUE), write(Integer.class, Integer.MAX_VALUE));
+        assertEquals(Json.createValue(Long.MIN_VALUE), write(Long.class, Long.MIN_VALUE));
+        assertEquals(Json.createValue(new BigDecimal("12.340")), write(BigDecimal.class, new BigDecimal("12.340")));
+        assertEquals(Json.createValue(new BigInteger("123456789012345678901234567890")),
+                     write(BigInteger.class, new BigInteger("123456789012345678901234567890")));
+        assertEquals(Json.createValue("text"), write(String.class, "text"));
+    }
+
+    @Test
+    void testWriteDates() {
+        assertEquals(Json.createValue("1970-01-01T00:00:00Z"), write(Date.class, new Date(0)));
+        // Subclasses of Date are written as dates
+        assertEquals(Json.createValue("1970-01-01T00:00:01Z"), write(Timestamp.class, new Timestamp(1000)));
+        assertEquals(Json.createValue("2020-01-02T01:04:05Z"),
+                     write(OffsetDateTime.class, OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(2))));
+    }
+
+    @Test
+    void testWriteFallback() {
+        OffsetTime time = OffsetTime.of(10, 15, 30, 0, ZoneOffset.ofHours(1));
+        assertEquals(Json.createValue(time.toString()), write(OffsetTime.class, time));
+        // Declared as Object, the value's type determines the JSON value
+        assertEquals(Json.createValue(7L), write(Object.class, 7L));
+        assertEquals(Json.createValue("1970-01-01T00:00:00Z"), write(Object.class, new Date(0)));
+        assertEquals(Json.createValue("[a]"), write(Object.class, List.of("a")));
+    }
+
+    @Test
+    void testToJsonValue() {
+        assertEquals(JsonValue.NULL, SerializationPlan.toJsonValue(null));
+        assertEquals(JsonValue.TRUE, SerializationPlan.toJsonValue(true));
+        assertEquals(Json.createValue(3), SerializationPlan.toJsonValue(3));
+        assertEquals(Json.createValue(2.5d), SerializationPlan.toJsonValue(2.5f));
+        assertEquals(Json.createValue("x"), SerializationPlan.toJsonValue('x'));
+    }
+
+    @Test
+    void testWriteResource() {
+        TypeModel model = new TypeModel();
+        model.setId(1);
+        model.setPrimitiveInt(5);
+        model.setString("value");
+        model.setPrimitiveBoolean(true);
+        model.setUtilDate(new Date(0));
+
+        JsonObject attributes = new SerializationPlan(meta).write(null, new Entity(meta, model));
+
+        assertEquals(5, attributes.getInt("primitiveInt"));
+        assertEquals("value", attributes.getString("string"));
+        assertEquals(JsonValue.TRUE, attributes.get("primitiveBoolean"));
+        assertEquals("1970-01-01T00:00:00Z", attributes.getString("utilDate"));
+        assertEquals(JsonValue.NULL, attributes.get("wrappedInt"));
+        assertEquals(JsonValue.NULL, attributes.get("offsetTime"));
+        // Attributes are written in order of their names
+        List<String> names = List.copyOf(attributes.keySet());
+        assertEquals(names.stream().sorted().collect(Collectors.toList()), names);
+    }
+
+    @Test
+    void testWriteSparseFieldset() {
+        InternalQuery params = Mockito.mock(InternalQuery.class);
+        Mockito.when(params.includeField(Mockito.anyString(), Mockito.anyString()))
+               .then(call -> "string".equals(call.getArgument(1)));
+        TypeModel model = new TypeModel();
+        model.setString("value");
+
+        JsonObject attributes = new SerializationPlan(meta).write(params, new Entity(meta, model));
+
+        assertEquals(Map.of("string", Json.createValue("value")), attributes);
+        assertFalse(attributes.containsKey("primitiveInt"));
+    }
+}
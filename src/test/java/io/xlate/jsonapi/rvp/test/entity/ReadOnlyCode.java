@@ -6,6 +6,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "RO_CODES")
@@ -15,12 +16,16 @@ public class ReadOnlyCode {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
-    @Column
+    @Column(updatable = false)
     private String title;
 
     @Column
     private String text;
 
+    @Version
+    @Column
+    private long version;
+
     public long getId() {
         return id;
     }
@@ -45,4 +50,12 @@ public class ReadOnlyCode {
         this.text = text;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
@@ -6,6 +6,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "TAGS")
@@ -18,6 +19,10 @@ public class Tag {
     @Column
     private String name;
 
+    @Version
+    @Column
+    private long version;
+
     public long getId() {
         return id;
     }
@@ -33,4 +38,12 @@ public class Tag {
     public void setName(String name) {
         this.name = name;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }